@@ -0,0 +1,64 @@
+package com.yourname.buildermode.benchmarks;
+
+import com.yourname.buildermode.BuilderMode;
+import org.bukkit.event.HandlerList;
+import org.bukkit.plugin.PluginDescriptionFile;
+import org.bukkit.plugin.java.JavaPluginLoader;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.stream.Stream;
+
+// BuilderMode loaded against a StubServer, with its data folder in a temporary directory
+final class BenchmarkPlugin extends BuilderMode {
+    
+    private final StubServer server;
+    private final Path dataFolder;
+    
+    @SuppressWarnings({"deprecation", "removal"})
+    private BenchmarkPlugin(StubServer server, PluginDescriptionFile description, Path dataFolder) {
+        super(new JavaPluginLoader(server.getServer()), description, dataFolder.toFile(), new File(dataFolder.toFile(), "BuilderMode.jar"));
+        this.server = server;
+        this.dataFolder = dataFolder;
+    }
+    
+    // Overrides are applied on top of the bundled config.yml and saved, so /bmr keeps them
+    static BenchmarkPlugin enable(StubServer server, Map<String, Object> overrides) throws IOException {
+        Path dataFolder = Files.createTempDirectory("buildermode-bench");
+        PluginDescriptionFile description = new PluginDescriptionFile("BuilderMode", "benchmark", BuilderMode.class.getName());
+        BenchmarkPlugin plugin = new BenchmarkPlugin(server, description, dataFolder);
+        // Keep per-player info logging out of the measurements
+        plugin.getLogger().setLevel(Level.WARNING);
+        
+        for (Map.Entry<String, Object> entry : overrides.entrySet()) {
+            plugin.getConfig().set(entry.getKey(), entry.getValue());
+        }
+        plugin.saveConfig();
+        plugin.onEnable();
+        return plugin;
+    }
+    
+    // The stub server decides which scheduler the plugin gets
+    @Override
+    protected boolean detectFolia() {
+        return server.isFolia();
+    }
+    
+    void shutdown() throws IOException {
+        onDisable();
+        // Handler lists are static, the next trial in this JVM must not see these listeners
+        HandlerList.unregisterAll(this);
+        server.shutdown();
+        
+        try (Stream<Path> files = Files.walk(dataFolder)) {
+            for (Path path : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(path);
+            }
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.yourname.buildermode.benchmarks;
+
+import com.yourname.buildermode.ConfigManager;
+import net.kyori.adventure.text.Component;
+import org.bukkit.World;
+import org.bukkit.event.world.WorldLoadEvent;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// Getters the event handlers call on every event
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConfigBenchmark {
+    
+    private BenchmarkPlugin plugin;
+    private ConfigManager configManager;
+    private World world;
+    
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        plugin = BenchmarkPlugin.enable(new StubServer(), Map.of());
+        configManager = plugin.getConfigManager();
+        
+        world = StubPlayer.createWorld("world", World.Environment.NORMAL);
+        configManager.onWorldLoad(new WorldLoadEvent(world));
+    }
+    
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        plugin.shutdown();
+    }
+    
+    @Benchmark
+    public int renderDistance() {
+        return configManager.getRenderDistance(World.Environment.NETHER);
+    }
+    
+    @Benchmark
+    public int worldRenderDistance() {
+        return configManager.getRenderDistance(world);
+    }
+    
+    @Benchmark
+    public boolean elytraDisabled() {
+        return configManager.isElytraDisabled();
+    }
+    
+    @Benchmark
+    public long safetyCheckInterval() {
+        return configManager.getSafetyCheckInterval();
+    }
+    
+    @Benchmark
+    public Component message() {
+        return configManager.getMessage("cannot-use-elytra");
+    }
+    
+    @Benchmark
+    public Component messageWithPlaceholders() {
+        return configManager.getTemplate("info-distance").render(12, 32);
+    }
+}
@@ -0,0 +1,90 @@
+package com.yourname.buildermode.benchmarks;
+
+import com.yourname.buildermode.RenderDistanceManager;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// Session lookups and a full enable/disable cycle with many other sessions active
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SessionBenchmark {
+    
+    @Param({"10", "100", "1000", "10000"})
+    public int sessions;
+    
+    private BenchmarkPlugin plugin;
+    private RenderDistanceManager renderDistanceManager;
+    private Player[] active;
+    private Player idle;
+    private int next;
+    
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        StubServer server = new StubServer();
+        World world = StubPlayer.createWorld("world", World.Environment.NORMAL);
+        active = new Player[sessions];
+        for (int i = 0; i < sessions; i++) {
+            active[i] = new StubPlayer(server, world, i).getPlayer();
+            server.addPlayer(active[i]);
+        }
+        idle = new StubPlayer(server, world, sessions).getPlayer();
+        server.addPlayer(idle);
+        
+        // The distance is applied straight away, no ramp or prewarm state in between
+        plugin = BenchmarkPlugin.enable(server, Map.of(
+            "ramp.enabled", false,
+            "prewarm.enabled", false,
+            "load-governor.enabled", false));
+        renderDistanceManager = plugin.getRenderDistanceManager();
+        
+        // Straight to the manager, the chunk budget would queue most of these
+        for (Player player : active) {
+            renderDistanceManager.enable(player);
+        }
+    }
+    
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        plugin.shutdown();
+    }
+    
+    @Benchmark
+    public boolean isActive() {
+        Player player = active[next];
+        next = next + 1 == active.length ? 0 : next + 1;
+        return renderDistanceManager.isActive(player);
+    }
+    
+    @Benchmark
+    public boolean isActiveIdle() {
+        return renderDistanceManager.isActive(idle);
+    }
+    
+    @Benchmark
+    public boolean enableDisable() {
+        boolean enabled = renderDistanceManager.enable(idle);
+        renderDistanceManager.disable(idle);
+        return enabled;
+    }
+}
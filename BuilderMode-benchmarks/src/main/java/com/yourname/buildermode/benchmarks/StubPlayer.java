@@ -0,0 +1,165 @@
+package com.yourname.buildermode.benchmarks;
+
+import org.bukkit.Chunk;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+import org.bukkit.entity.Vehicle;
+import org.bukkit.inventory.PlayerInventory;
+
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+// A player standing still in an empty inventory. The distances, world, vehicle and online
+// flag are real state so the simulator can move players around and check the results.
+final class StubPlayer {
+    
+    private final int index;
+    private final UUID uniqueId;
+    private final String name;
+    private final PlayerInventory inventory;
+    private final Player player;
+    private volatile World world;
+    private volatile Vehicle vehicle;
+    private volatile boolean online = true;
+    private volatile int viewDistance;
+    private volatile int sendViewDistance;
+    
+    StubPlayer(StubServer server, World world, int index) {
+        this.index = index;
+        this.uniqueId = new UUID(0L, index);
+        this.name = "Player" + index;
+        this.world = world;
+        this.viewDistance = world.getViewDistance();
+        this.sendViewDistance = world.getSendViewDistance();
+        this.inventory = Stubs.proxy(PlayerInventory.class, (method, args) -> {
+            // Nothing worn, plenty of room
+            return method.equals("firstEmpty") ? 0 : Stubs.UNHANDLED;
+        });
+        
+        this.player = Stubs.proxy(Player.class, (method, args) -> {
+            switch (method) {
+                case "getUniqueId":
+                    return uniqueId;
+                case "getName":
+                    return name;
+                case "getWorld":
+                    return this.world;
+                case "getLocation":
+                    return new Location(this.world, 0.5, 64.0, 0.5);
+                case "getViewDistance":
+                    return viewDistance;
+                case "setViewDistance":
+                    viewDistance = (Integer) args[0];
+                    return null;
+                case "getSendViewDistance":
+                    return sendViewDistance;
+                case "setSendViewDistance":
+                    sendViewDistance = (Integer) args[0];
+                    return null;
+                case "getInventory":
+                    return inventory;
+                case "getScheduler":
+                    return server.getEntityScheduler(index);
+                case "getServer":
+                    return server.getServer();
+                case "isInsideVehicle":
+                    return vehicle != null;
+                case "getVehicle":
+                    return vehicle;
+                case "leaveVehicle":
+                    boolean riding = vehicle != null;
+                    vehicle = null;
+                    return riding;
+                case "isOnline":
+                case "isValid":
+                    return online;
+                case "hasPermission":
+                    return true;
+                default:
+                    // sendMessage and friends go nowhere
+                    return Stubs.UNHANDLED;
+            }
+        });
+    }
+    
+    Player getPlayer() {
+        return player;
+    }
+    
+    int getIndex() {
+        return index;
+    }
+    
+    World getWorld() {
+        return world;
+    }
+    
+    void setWorld(World world) {
+        this.world = world;
+    }
+    
+    Vehicle getVehicle() {
+        return vehicle;
+    }
+    
+    void setVehicle(Vehicle vehicle) {
+        this.vehicle = vehicle;
+    }
+    
+    boolean isOnline() {
+        return online;
+    }
+    
+    void setOnline(boolean online) {
+        this.online = online;
+    }
+    
+    int getViewDistance() {
+        return viewDistance;
+    }
+    
+    int getSendViewDistance() {
+        return sendViewDistance;
+    }
+    
+    static World createWorld(String name, World.Environment environment) {
+        return createWorld(name, environment, ConcurrentHashMap.newKeySet());
+    }
+    
+    // Every chunk loads at once. Plugin chunk tickets go into tickets, keyed like Bukkit's chunk keys.
+    static World createWorld(String name, World.Environment environment, Set<Long> tickets) {
+        UUID uid = UUID.nameUUIDFromBytes(name.getBytes());
+        Chunk chunk = Stubs.proxy(Chunk.class, (method, args) -> Stubs.UNHANDLED);
+        
+        return Stubs.proxy(World.class, (method, args) -> {
+            switch (method) {
+                case "getName":
+                    return name;
+                case "getUID":
+                    return uid;
+                case "getEnvironment":
+                    return environment;
+                case "getViewDistance":
+                case "getSendViewDistance":
+                    return 10;
+                case "isChunkGenerated":
+                    return true;
+                case "getChunkAtAsync":
+                    return CompletableFuture.completedFuture(chunk);
+                case "addPluginChunkTicket":
+                    return tickets.add(chunkKey((Integer) args[0], (Integer) args[1]));
+                case "removePluginChunkTicket":
+                    return tickets.remove(chunkKey((Integer) args[0], (Integer) args[1]));
+                default:
+                    return Stubs.UNHANDLED;
+            }
+        });
+    }
+    
+    private static long chunkKey(int x, int z) {
+        return ((long) z << 32) | (x & 0xFFFFFFFFL);
+    }
+}
@@ -0,0 +1,348 @@
+package com.yourname.buildermode.benchmarks;
+
+import io.papermc.paper.threadedregions.scheduler.AsyncScheduler;
+import io.papermc.paper.threadedregions.scheduler.EntityScheduler;
+import io.papermc.paper.threadedregions.scheduler.GlobalRegionScheduler;
+import io.papermc.paper.threadedregions.scheduler.ScheduledTask;
+import org.bukkit.Server;
+import org.bukkit.entity.Player;
+import org.bukkit.event.Event;
+import org.bukkit.event.EventException;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.HandlerList;
+import org.bukkit.event.Listener;
+import org.bukkit.plugin.EventExecutor;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.plugin.PluginManager;
+import org.bukkit.plugin.RegisteredListener;
+import org.bukkit.scheduler.BukkitScheduler;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+// A server with no world simulation. Repeating tasks from either scheduler are collected
+// and run by tick(), one-off tasks run on the following tick like they would in game.
+// In Folia mode players are spread over region threads: their entity tasks run there, in
+// parallel, after the global tasks of the tick, and each player always stays on one region.
+final class StubServer {
+    
+    // Only the first few task failures are logged in full
+    private static final int LOGGED_ERRORS = 5;
+    
+    private final Logger logger = Logger.getLogger("BuilderMode-benchmarks");
+    private final boolean folia;
+    private final List<Player> onlinePlayers = new CopyOnWriteArrayList<>();
+    private final List<Runnable> repeating = new CopyOnWriteArrayList<>();
+    private final Queue<Runnable> pending = new ConcurrentLinkedQueue<>();
+    private final Region[] regions;
+    private final AtomicLong errors = new AtomicLong();
+    
+    private final Server server;
+    private final BukkitScheduler scheduler;
+    private final GlobalRegionScheduler globalScheduler;
+    private final AsyncScheduler asyncScheduler;
+    private final PluginManager pluginManager;
+    private final BukkitTask bukkitTask;
+    private final ScheduledTask scheduledTask;
+    
+    StubServer() {
+        this(false, 1);
+    }
+    
+    StubServer(boolean folia, int regionCount) {
+        this.folia = folia;
+        this.bukkitTask = Stubs.proxy(BukkitTask.class, (method, args) -> Stubs.UNHANDLED);
+        this.scheduledTask = Stubs.proxy(ScheduledTask.class, (method, args) -> Stubs.UNHANDLED);
+        
+        this.regions = new Region[folia ? Math.max(1, regionCount) : 1];
+        for (int i = 0; i < regions.length; i++) {
+            regions[i] = new Region(i);
+        }
+        
+        this.scheduler = Stubs.proxy(BukkitScheduler.class, (method, args) -> {
+            switch (method) {
+                case "runTaskTimer":
+                    return repeat((Runnable) args[1], BukkitTask.class);
+                case "runTask":
+                    pending.add((Runnable) args[1]);
+                    return bukkitTask;
+                default:
+                    return Stubs.UNHANDLED;
+            }
+        });
+        
+        this.globalScheduler = Stubs.proxy(GlobalRegionScheduler.class, (method, args) -> {
+            switch (method) {
+                case "runAtFixedRate":
+                    return repeat(bind(args[1]), ScheduledTask.class);
+                case "run":
+                    pending.add(bind(args[1]));
+                    return scheduledTask;
+                case "execute":
+                    pending.add((Runnable) args[1]);
+                    return Stubs.UNHANDLED;
+                default:
+                    return Stubs.UNHANDLED;
+            }
+        });
+        
+        this.asyncScheduler = Stubs.proxy(AsyncScheduler.class, (method, args) -> {
+            if (method.equals("runNow")) {
+                bind(args[1]).run();
+                return scheduledTask;
+            }
+            return Stubs.UNHANDLED;
+        });
+        
+        this.pluginManager = Stubs.proxy(PluginManager.class, (method, args) -> {
+            switch (method) {
+                case "registerEvents":
+                    registerEvents((Listener) args[0], (Plugin) args[1]);
+                    return null;
+                case "registerEvent":
+                    @SuppressWarnings("unchecked")
+                    Class<? extends Event> eventClass = (Class<? extends Event>) args[0];
+                    if (args.length == 6) {
+                        register(eventClass, new RegisteredListener((Listener) args[1], (EventExecutor) args[3], (EventPriority) args[2], (Plugin) args[4], (Boolean) args[5]));
+                    } else {
+                        register(eventClass, new RegisteredListener((Listener) args[1], (EventExecutor) args[3], (EventPriority) args[2], (Plugin) args[4], false));
+                    }
+                    return null;
+                case "callEvent":
+                    callEvent((Event) args[0]);
+                    return null;
+                default:
+                    return Stubs.UNHANDLED;
+            }
+        });
+        
+        this.server = Stubs.proxy(Server.class, (method, args) -> {
+            switch (method) {
+                case "getLogger":
+                    return logger;
+                case "getOnlinePlayers":
+                    return Collections.unmodifiableList(onlinePlayers);
+                case "getWorlds":
+                    return Collections.emptyList();
+                case "getScheduler":
+                    return scheduler;
+                case "getGlobalRegionScheduler":
+                    return globalScheduler;
+                case "getAsyncScheduler":
+                    return asyncScheduler;
+                case "getPluginManager":
+                    return pluginManager;
+                case "getTPS":
+                    return new double[] {20.0, 20.0, 20.0};
+                case "getAverageTickTime":
+                    return 5.0;
+                case "getName":
+                    return "StubServer";
+                case "getVersion":
+                case "getBukkitVersion":
+                    return "1.21.4-R0.1-SNAPSHOT";
+                default:
+                    return Stubs.UNHANDLED;
+            }
+        });
+    }
+    
+    @SuppressWarnings("unchecked")
+    private Runnable bind(Object action) {
+        Consumer<ScheduledTask> consumer = (Consumer<ScheduledTask>) action;
+        return () -> consumer.accept(scheduledTask);
+    }
+    
+    // The returned task can be cancelled, unlike the shared one-off handles
+    private <T> T repeat(Runnable action, Class<T> taskType) {
+        repeating.add(action);
+        return Stubs.proxy(taskType, (method, args) -> {
+            if (method.equals("cancel")) {
+                repeating.remove(action);
+            }
+            return Stubs.UNHANDLED;
+        });
+    }
+    
+    Server getServer() {
+        return server;
+    }
+    
+    boolean isFolia() {
+        return folia;
+    }
+    
+    // Task failures so far, a real server would log them and carry on
+    long getErrors() {
+        return errors.get();
+    }
+    
+    EntityScheduler getEntityScheduler(int playerIndex) {
+        return regions[Math.floorMod(playerIndex, regions.length)].scheduler;
+    }
+    
+    void addPlayer(Player player) {
+        onlinePlayers.add(player);
+    }
+    
+    void removePlayer(Player player) {
+        onlinePlayers.remove(player);
+    }
+    
+    // Runs the action where the player's own code would run, e.g. their commands and events
+    void runAs(StubPlayer player, Runnable action) {
+        if (folia) {
+            regions[Math.floorMod(player.getIndex(), regions.length)].queue.add(action);
+        } else {
+            pending.add(action);
+        }
+    }
+    
+    // One server tick: the repeating tasks, then whatever they handed off
+    void tick() {
+        for (Runnable task : repeating) {
+            run(task);
+        }
+        
+        // Tasks queued while draining wait for the next tick
+        for (int i = pending.size(); i > 0; i--) {
+            run(pending.poll());
+        }
+        
+        if (folia) {
+            tickRegions();
+        } else {
+            regions[0].drain();
+        }
+    }
+    
+    private void tickRegions() {
+        List<Future<?>> futures = new ArrayList<>(regions.length);
+        for (Region region : regions) {
+            futures.add(region.thread.submit(region::drain));
+        }
+        
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ExecutionException e) {
+                failed(e.getCause());
+            }
+        }
+    }
+    
+    private void run(Runnable task) {
+        try {
+            task.run();
+        } catch (RuntimeException e) {
+            failed(e);
+        }
+    }
+    
+    private void failed(Throwable error) {
+        if (errors.incrementAndGet() <= LOGGED_ERRORS) {
+            logger.log(Level.WARNING, "Task failed on " + Thread.currentThread().getName(), error);
+        }
+    }
+    
+    void callEvent(Event event) {
+        for (RegisteredListener listener : event.getHandlers().getRegisteredListeners()) {
+            try {
+                listener.callEvent(event);
+            } catch (EventException e) {
+                failed(e.getCause() != null ? e.getCause() : e);
+            }
+        }
+    }
+    
+    // Same lookup as Bukkit's own plugin manager, so HandlerList.unregisterAll works as usual
+    private void registerEvents(Listener listener, Plugin plugin) {
+        for (Method method : listener.getClass().getDeclaredMethods()) {
+            EventHandler handler = method.getAnnotation(EventHandler.class);
+            if (handler == null || method.getParameterCount() != 1 || !Event.class.isAssignableFrom(method.getParameterTypes()[0])) {
+                continue;
+            }
+            
+            Class<? extends Event> eventClass = method.getParameterTypes()[0].asSubclass(Event.class);
+            EventExecutor executor = EventExecutor.create(method, eventClass);
+            register(eventClass, new RegisteredListener(listener, executor, handler.priority(), plugin, handler.ignoreCancelled()));
+        }
+    }
+    
+    private void register(Class<? extends Event> eventClass, RegisteredListener listener) {
+        getHandlerList(eventClass).register(listener);
+    }
+    
+    private static HandlerList getHandlerList(Class<?> eventClass) {
+        for (Class<?> type = eventClass; type != null && Event.class.isAssignableFrom(type); type = type.getSuperclass()) {
+            try {
+                Method method = type.getDeclaredMethod("getHandlerList");
+                method.setAccessible(true);
+                return (HandlerList) method.invoke(null);
+            } catch (NoSuchMethodException e) {
+                // Declared further up
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException("Cannot get the handler list of " + eventClass.getName(), e);
+            }
+        }
+        throw new IllegalStateException(eventClass.getName() + " has no handler list");
+    }
+    
+    void shutdown() {
+        for (Region region : regions) {
+            region.thread.shutdownNow();
+        }
+    }
+    
+    private final class Region {
+        
+        private final Queue<Runnable> queue = new ConcurrentLinkedQueue<>();
+        private final ExecutorService thread;
+        private final EntityScheduler scheduler;
+        
+        private Region(int id) {
+            this.thread = Executors.newSingleThreadExecutor((runnable) -> {
+                Thread thread = new Thread(runnable, "Region-" + id);
+                thread.setDaemon(true);
+                return thread;
+            });
+            
+            this.scheduler = Stubs.proxy(EntityScheduler.class, (method, args) -> {
+                switch (method) {
+                    case "run":
+                        queue.add(bind(args[1]));
+                        return scheduledTask;
+                    case "execute":
+                        queue.add((Runnable) args[1]);
+                        return true;
+                    default:
+                        return Stubs.UNHANDLED;
+                }
+            });
+        }
+        
+        private void drain() {
+            for (int i = queue.size(); i > 0; i--) {
+                run(queue.poll());
+            }
+        }
+    }
+}
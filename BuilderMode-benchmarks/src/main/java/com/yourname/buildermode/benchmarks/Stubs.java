@@ -0,0 +1,56 @@
+package com.yourname.buildermode.benchmarks;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Proxy;
+
+// Proxy based stand-ins for the Bukkit interfaces the plugin touches. A handler answers
+// the methods it cares about, anything else returns null, zero or false.
+final class Stubs {
+    
+    static final Object UNHANDLED = new Object();
+    
+    private Stubs() {
+    }
+    
+    static <T> T proxy(Class<T> type, Handler handler) {
+        Object proxy = Proxy.newProxyInstance(Stubs.class.getClassLoader(), new Class<?>[] {type}, (self, method, args) -> {
+            // Identity semantics, like one live entity object per player on a real server
+            switch (method.getName()) {
+                case "equals":
+                    if (method.getParameterCount() == 1) {
+                        return self == args[0];
+                    }
+                    break;
+                case "hashCode":
+                    if (method.getParameterCount() == 0) {
+                        return System.identityHashCode(self);
+                    }
+                    break;
+                case "toString":
+                    if (method.getParameterCount() == 0) {
+                        return type.getSimpleName() + "@" + Integer.toHexString(System.identityHashCode(self));
+                    }
+                    break;
+                default:
+                    break;
+            }
+            
+            Object result = handler.handle(method.getName(), args == null ? new Object[0] : args);
+            if (result != UNHANDLED) {
+                return result;
+            }
+            
+            Class<?> returnType = method.getReturnType();
+            if (returnType.isPrimitive() && returnType != void.class) {
+                return Array.get(Array.newInstance(returnType, 1), 0);
+            }
+            return null;
+        });
+        return type.cast(proxy);
+    }
+    
+    interface Handler {
+        
+        Object handle(String method, Object[] args);
+    }
+}
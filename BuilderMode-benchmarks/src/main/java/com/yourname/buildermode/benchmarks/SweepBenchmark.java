@@ -0,0 +1,90 @@
+package com.yourname.buildermode.benchmarks;
+
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// One full pass of a periodic per-player check. The check runs every second and only it
+// is turned on, so 20 ticks visit every player once; the score is the cost of that pass.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SweepBenchmark {
+    
+    private static final int TICKS_PER_PASS = 20;
+    
+    @Param({"10", "100", "1000", "10000"})
+    public int sessions;
+    
+    // safety: the render distance safety check, elytra and mount: the restriction sweeps
+    @Param({"safety", "elytra", "mount"})
+    public String check;
+    
+    private StubServer server;
+    private BenchmarkPlugin plugin;
+    
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        server = new StubServer();
+        World world = StubPlayer.createWorld("world", World.Environment.NORMAL);
+        Player[] players = new Player[sessions];
+        for (int i = 0; i < sessions; i++) {
+            players[i] = new StubPlayer(server, world, i).getPlayer();
+            server.addPlayer(players[i]);
+        }
+        
+        Map<String, Object> overrides = new HashMap<>();
+        overrides.put("safety-check-interval", check.equals("safety") ? 1 : 0);
+        // The whole safety sweep fits in one tick instead of being spread out
+        overrides.put("safety-check-budget", sessions);
+        overrides.put("safety-check-sweep-size", 0);
+        overrides.put("restrictions.elytra-reconcile-interval", check.equals("elytra") ? 1 : 0);
+        overrides.put("restrictions.mount-check-interval", check.equals("mount") ? 1 : 0);
+        // Ticks are much shorter than in game, sessions must outlast the whole run
+        overrides.put("dimensions.overworld.duration", 100_000_000);
+        overrides.put("ramp.enabled", false);
+        overrides.put("prewarm.enabled", false);
+        overrides.put("load-governor.enabled", false);
+        plugin = BenchmarkPlugin.enable(server, overrides);
+        
+        for (Player player : players) {
+            plugin.getRenderDistanceManager().enable(player);
+        }
+        // Settle the distance changes made while enabling
+        for (int i = 0; i < TICKS_PER_PASS; i++) {
+            server.tick();
+        }
+    }
+    
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        plugin.shutdown();
+    }
+    
+    @Benchmark
+    public void pass() {
+        for (int i = 0; i < TICKS_PER_PASS; i++) {
+            server.tick();
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.yourname.buildermode.benchmarks;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Drives hundreds of fake players through the plugin without a server, for every workload
+// on both schedulers, and fails if anything is left behind at the end. The size of a run
+// comes from system properties, e.g.
+//   mvn test -pl BuilderMode-benchmarks -am -Dsimulator.players=2000 -Dsimulator.ticks=12000 -Dsimulator.set=prewarm.enabled=true
+class LoadSimulatorTest {
+    
+    private static final int PLAYERS = Integer.getInteger("simulator.players", 200);
+    private static final long TICKS = Long.getLong("simulator.ticks", 2400L);
+    private static final int REGIONS = Integer.getInteger("simulator.regions", 4);
+    private static final long SEED = Long.getLong("simulator.seed", 1L);
+    
+    // features turns on everything that is opt-in and changes how sessions start and end
+    @ParameterizedTest(name = "{0} on {1}, opt-in features {2}")
+    @CsvSource({
+        "build-event, bukkit, false",
+        "build-event, folia, false",
+        "build-event, bukkit, true",
+        "build-event, folia, true",
+        "churn, bukkit, true",
+        "churn, folia, true",
+        "reloads, bukkit, true",
+        "reloads, folia, true"
+    })
+    void endsClean(String workloadName, String mode, boolean features) throws IOException {
+        Map<String, Object> overrides = new LinkedHashMap<>();
+        if (features) {
+            overrides.put("ramp.enabled", true);
+            overrides.put("budget.enabled", true);
+            overrides.put("load-governor.enabled", true);
+            overrides.put("prewarm.enabled", true);
+        }
+        overrides.putAll(parseOverrides(System.getProperty("simulator.set", "")));
+        
+        StubServer server = new StubServer(mode.equals("folia"), REGIONS);
+        Workload workload = Workload.named(workloadName, TICKS);
+        Simulation simulation = new Simulation(server, workload, PLAYERS, TICKS, SEED);
+        
+        System.out.println("Simulating " + PLAYERS + " players for " + TICKS + " ticks, workload " + workload.getName()
+            + ", " + (server.isFolia() ? "Folia with " + REGIONS + " region thread(s)" : "Bukkit scheduling"));
+        
+        List<String> failures;
+        try {
+            simulation.run(overrides);
+            report(simulation, TICKS);
+            simulation.finish();
+            failures = simulation.checkInvariants();
+        } finally {
+            simulation.shutdown();
+        }
+        
+        assertTrue(failures.isEmpty(), () -> failures.size() + " invariant(s) broken:\n  - " + String.join("\n  - ", failures));
+    }
+    
+    private static void report(Simulation simulation, long ticks) {
+        long[] tickNanos = simulation.getTickNanos();
+        Arrays.sort(tickNanos);
+        double seconds = simulation.getWallNanos() / 1_000_000_000.0;
+        
+        long total = 0;
+        for (Map.Entry<String, LongAdder> entry : simulation.getActions().entrySet()) {
+            total += entry.getValue().sum();
+        }
+        
+        System.out.println(String.format("Ran in %.2fs: %.0f ticks/s, %.0f player actions/s", seconds, ticks / seconds, total / seconds));
+        System.out.println(String.format("Tick cost: mean %s, p50 %s, p99 %s, max %s",
+            formatNanos(mean(tickNanos)), formatNanos(percentile(tickNanos, 0.5)),
+            formatNanos(percentile(tickNanos, 0.99)), formatNanos(tickNanos[tickNanos.length - 1])));
+        
+        StringBuilder actions = new StringBuilder("Actions:");
+        for (Map.Entry<String, LongAdder> entry : simulation.getActions().entrySet()) {
+            actions.append(' ').append(entry.getKey()).append('=').append(entry.getValue().sum());
+        }
+        System.out.println(actions);
+    }
+    
+    private static long mean(long[] values) {
+        long sum = 0;
+        for (long value : values) {
+            sum += value;
+        }
+        return values.length == 0 ? 0 : sum / values.length;
+    }
+    
+    // The values must already be sorted
+    private static long percentile(long[] values, double quantile) {
+        if (values.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(values.length * quantile) - 1;
+        return values[Math.max(0, Math.min(values.length - 1, index))];
+    }
+    
+    private static String formatNanos(long nanos) {
+        if (nanos >= 1_000_000L) {
+            return String.format("%.2fms", nanos / 1_000_000.0);
+        }
+        return String.format("%.1fµs", nanos / 1_000.0);
+    }
+    
+    // Comma separated key=value pairs
+    private static Map<String, Object> parseOverrides(String option) {
+        Map<String, Object> overrides = new LinkedHashMap<>();
+        for (String pair : option.split(",")) {
+            int equals = pair.indexOf('=');
+            if (equals > 0) {
+                overrides.put(pair.substring(0, equals).trim(), parseValue(pair.substring(equals + 1).trim()));
+            }
+        }
+        return overrides;
+    }
+    
+    // Numbers and booleans keep their type, so the plugin's getInt and getBoolean see them
+    private static Object parseValue(String value) {
+        if (value.equals("true") || value.equals("false")) {
+            return Boolean.parseBoolean(value);
+        }
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            // Not a whole number
+        }
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            return value;
+        }
+    }
+}
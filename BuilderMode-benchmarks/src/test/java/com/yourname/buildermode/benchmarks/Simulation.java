@@ -0,0 +1,347 @@
+package com.yourname.buildermode.benchmarks;
+
+import com.yourname.buildermode.ChunkBudget;
+import com.yourname.buildermode.DistanceMode;
+import com.yourname.buildermode.RenderDistanceManager;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandSender;
+import org.bukkit.entity.Player;
+import org.bukkit.entity.Vehicle;
+import org.bukkit.event.entity.EntityToggleGlideEvent;
+import org.bukkit.event.player.PlayerChangedWorldEvent;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.event.player.PlayerTeleportEvent;
+import org.bukkit.event.vehicle.VehicleEnterEvent;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+// Runs BuilderMode against a StubServer full of fake players and a workload, then ends
+// every session and checks nothing was left behind
+final class Simulation {
+    
+    // Enough for a ramp from 32 back down to 2 at the default step interval
+    private static final int SETTLE_TICKS = 600;
+    private static final int REJOIN_MIN_TICKS = 100;
+    private static final int REJOIN_MAX_TICKS = 600;
+    
+    private final StubServer server;
+    private final Workload workload;
+    private final Random random;
+    private final long ticks;
+    private final World overworld;
+    private final World nether;
+    // Plugin chunk tickets held in each world, the prewarmer must hand back every one
+    private final Set<Long> overworldTickets = ConcurrentHashMap.newKeySet();
+    private final Set<Long> netherTickets = ConcurrentHashMap.newKeySet();
+    private final List<StubPlayer> players = new ArrayList<>();
+    // Ticks to the players coming back then, only touched by the driving thread
+    private final Map<Long, List<StubPlayer>> rejoins = new TreeMap<>();
+    private final Map<String, LongAdder> actions = new TreeMap<>();
+    private final Command buildermode = new SimulatedCommand("buildermode");
+    private final Command reload = new SimulatedCommand("bmr");
+    private final CommandSender console;
+    private final Vehicle boat;
+    private BenchmarkPlugin plugin;
+    private long[] tickNanos;
+    private long wallNanos;
+    private long tick;
+    
+    Simulation(StubServer server, Workload workload, int playerCount, long ticks, long seed) {
+        this.server = server;
+        this.workload = workload;
+        this.random = new Random(seed);
+        this.ticks = ticks;
+        this.overworld = StubPlayer.createWorld("world", World.Environment.NORMAL, overworldTickets);
+        this.nether = StubPlayer.createWorld("world_nether", World.Environment.NETHER, netherTickets);
+        this.console = Stubs.proxy(CommandSender.class, (method, args) -> {
+            switch (method) {
+                case "getName":
+                    return "CONSOLE";
+                case "hasPermission":
+                    return true;
+                default:
+                    return Stubs.UNHANDLED;
+            }
+        });
+        this.boat = Stubs.proxy(Vehicle.class, (method, args) -> Stubs.UNHANDLED);
+        
+        for (String action : new String[] {"on", "off", "world-change", "mount", "mount-blocked", "glide", "glide-blocked", "logout", "rejoin", "reload"}) {
+            actions.put(action, new LongAdder());
+        }
+        for (int i = 0; i < playerCount; i++) {
+            StubPlayer player = new StubPlayer(server, overworld, i);
+            players.add(player);
+            server.addPlayer(player.getPlayer());
+        }
+    }
+    
+    List<StubPlayer> getPlayers() {
+        return players;
+    }
+    
+    void run(Map<String, Object> overrides) throws IOException {
+        plugin = BenchmarkPlugin.enable(server, overrides);
+        tickNanos = new long[(int) ticks];
+        
+        long started = System.nanoTime();
+        for (tick = 1; tick <= ticks; tick++) {
+            long start = System.nanoTime();
+            workload.run(this, random, tick);
+            rejoinDue(tick);
+            server.tick();
+            tickNanos[(int) (tick - 1)] = System.nanoTime() - start;
+        }
+        wallNanos = System.nanoTime() - started;
+    }
+    
+    // Brings everyone back, turns every session off and waits for the distances to settle
+    void finish() {
+        for (List<StubPlayer> due : rejoins.values()) {
+            for (StubPlayer player : due) {
+                rejoin(player);
+            }
+        }
+        rejoins.clear();
+        server.tick();
+        
+        // Turning one session off can admit a queued player, so repeat until it's quiet
+        for (int round = 0; round < 10 && !isQuiet(); round++) {
+            for (StubPlayer player : players) {
+                commandOff(this, player);
+            }
+            for (int i = 0; i < 20; i++) {
+                server.tick();
+            }
+        }
+        for (int i = 0; i < SETTLE_TICKS; i++) {
+            server.tick();
+        }
+    }
+    
+    private boolean isQuiet() {
+        if (plugin.getRenderDistanceManager().getSessions().activeCount() > 0) {
+            return false;
+        }
+        for (ChunkBudget.WorldStatus status : plugin.getChunkBudget().getStatuses()) {
+            if (!status.getQueue().isEmpty()) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    // Returns the broken invariants, empty if everything ended cleanly
+    List<String> checkInvariants() {
+        List<String> failures = new ArrayList<>();
+        RenderDistanceManager renderDistanceManager = plugin.getRenderDistanceManager();
+        
+        int active = renderDistanceManager.getSessions().activeCount();
+        if (active > 0) {
+            failures.add(active + " session(s) still active after every player turned BuilderMode off");
+        }
+        
+        for (ChunkBudget.WorldStatus status : plugin.getChunkBudget().getStatuses()) {
+            failures.add("World " + status.getWorldName() + " still has " + status.getUsed() + " chunk(s) reserved by "
+                + status.getSessions() + " session(s) and " + status.getQueue().size() + " queued player(s)");
+        }
+        
+        int tickets = overworldTickets.size() + netherTickets.size();
+        if (tickets > 0) {
+            failures.add(tickets + " chunk ticket(s) still held by the prewarmer");
+        }
+        
+        int wrongDistance = 0;
+        int ramping = 0;
+        for (StubPlayer player : players) {
+            Player bukkitPlayer = player.getPlayer();
+            if (renderDistanceManager.isRamping(bukkitPlayer)) {
+                ramping++;
+            }
+            if (player.getViewDistance() != renderDistanceManager.getDefaultDistance(bukkitPlayer, DistanceMode.VIEW)
+                || player.getSendViewDistance() != renderDistanceManager.getDefaultDistance(bukkitPlayer, DistanceMode.SEND)) {
+                wrongDistance++;
+            }
+        }
+        if (ramping > 0) {
+            failures.add(ramping + " player(s) still ramping after " + SETTLE_TICKS + " ticks");
+        }
+        if (wrongDistance > 0) {
+            failures.add(wrongDistance + " player(s) not back on their default distances");
+        }
+        
+        // Everyone leaves, nothing may stay behind for them
+        for (StubPlayer player : players) {
+            logout(this, player);
+        }
+        server.tick();
+        int leaked = renderDistanceManager.getSessions().values().size();
+        if (leaked > 0) {
+            failures.add(leaked + " session(s) still registered after every player logged out");
+        }
+        
+        if (server.getErrors() > 0) {
+            failures.add(server.getErrors() + " task(s) threw an exception");
+        }
+        return failures;
+    }
+    
+    void shutdown() throws IOException {
+        if (plugin != null) {
+            plugin.shutdown();
+        }
+    }
+    
+    long[] getTickNanos() {
+        return Arrays.copyOf(tickNanos, tickNanos.length);
+    }
+    
+    long getWallNanos() {
+        return wallNanos;
+    }
+    
+    Map<String, LongAdder> getActions() {
+        return actions;
+    }
+    
+    private void count(String action) {
+        actions.get(action).increment();
+    }
+    
+    private void rejoinDue(long tick) {
+        List<StubPlayer> due = rejoins.remove(tick);
+        if (due != null) {
+            for (StubPlayer player : due) {
+                rejoin(player);
+            }
+        }
+    }
+    
+    private void rejoin(StubPlayer player) {
+        count("rejoin");
+        player.setOnline(true);
+        server.addPlayer(player.getPlayer());
+        server.runAs(player, () -> {
+            server.callEvent(new PlayerJoinEvent(player.getPlayer(), "joined"));
+        });
+    }
+    
+    static void commandOn(Simulation simulation, StubPlayer player) {
+        simulation.command(player, "on");
+    }
+    
+    static void commandOff(Simulation simulation, StubPlayer player) {
+        simulation.command(player, "off");
+    }
+    
+    private void command(StubPlayer player, String subcommand) {
+        if (!player.isOnline()) {
+            return;
+        }
+        
+        count(subcommand);
+        server.runAs(player, () -> {
+            plugin.onCommand(player.getPlayer(), buildermode, "bm", new String[] {subcommand});
+        });
+    }
+    
+    // Teleports between the overworld and the nether, like walking through a portal
+    static void changeWorld(Simulation simulation, StubPlayer player) {
+        if (!player.isOnline()) {
+            return;
+        }
+        
+        simulation.count("world-change");
+        simulation.server.runAs(player, () -> {
+            World from = player.getWorld();
+            World to = from == simulation.overworld ? simulation.nether : simulation.overworld;
+            PlayerTeleportEvent teleport = new PlayerTeleportEvent(player.getPlayer(), new Location(from, 0.5, 64.0, 0.5),
+                new Location(to, 0.5, 64.0, 0.5), PlayerTeleportEvent.TeleportCause.NETHER_PORTAL);
+            simulation.server.callEvent(teleport);
+            if (teleport.isCancelled()) {
+                return;
+            }
+            
+            player.setWorld(to);
+            simulation.server.callEvent(new PlayerChangedWorldEvent(player.getPlayer(), from));
+        });
+    }
+    
+    static void mount(Simulation simulation, StubPlayer player) {
+        if (!player.isOnline() || player.getVehicle() != null) {
+            return;
+        }
+        
+        simulation.count("mount");
+        simulation.server.runAs(player, () -> {
+            VehicleEnterEvent event = new VehicleEnterEvent(simulation.boat, player.getPlayer());
+            simulation.server.callEvent(event);
+            if (event.isCancelled()) {
+                simulation.count("mount-blocked");
+            } else {
+                player.setVehicle(simulation.boat);
+            }
+        });
+    }
+    
+    static void glide(Simulation simulation, StubPlayer player) {
+        if (!player.isOnline()) {
+            return;
+        }
+        
+        simulation.count("glide");
+        simulation.server.runAs(player, () -> {
+            EntityToggleGlideEvent event = new EntityToggleGlideEvent(player.getPlayer(), true);
+            simulation.server.callEvent(event);
+            if (event.isCancelled()) {
+                simulation.count("glide-blocked");
+            }
+        });
+    }
+    
+    // Logs out now and comes back a little later, unless the run ends first
+    static void logout(Simulation simulation, StubPlayer player) {
+        if (!player.isOnline()) {
+            return;
+        }
+        
+        simulation.count("logout");
+        player.setOnline(false);
+        simulation.server.removePlayer(player.getPlayer());
+        player.setVehicle(null);
+        simulation.server.runAs(player, () -> {
+            simulation.server.callEvent(new PlayerQuitEvent(player.getPlayer(), "left"));
+        });
+        
+        long rejoinAt = simulation.tick + REJOIN_MIN_TICKS + simulation.random.nextInt(REJOIN_MAX_TICKS - REJOIN_MIN_TICKS);
+        simulation.rejoins.computeIfAbsent(rejoinAt, (key) -> new ArrayList<>()).add(player);
+    }
+    
+    static void reload(Simulation simulation) {
+        simulation.count("reload");
+        simulation.plugin.onCommand(simulation.console, simulation.reload, "bmr", new String[0]);
+    }
+    
+    private static final class SimulatedCommand extends Command {
+        
+        private SimulatedCommand(String name) {
+            super(name);
+        }
+        
+        @Override
+        public boolean execute(CommandSender sender, String label, String[] args) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.yourname.buildermode.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Consumer;
+
+// A script of what the fake players do. Steps either hit every player at one tick, roll a
+// per-player chance every tick of a window, or run a server-wide action on an interval.
+final class Workload {
+    
+    private final String name;
+    private final List<Step> steps = new ArrayList<>();
+    
+    private Workload(String name) {
+        this.name = name;
+    }
+    
+    String getName() {
+        return name;
+    }
+    
+    Workload everyone(long tick, PlayerAction action) {
+        steps.add((simulation, random, now) -> {
+            if (now == tick) {
+                for (StubPlayer player : simulation.getPlayers()) {
+                    action.run(simulation, player);
+                }
+            }
+        });
+        return this;
+    }
+    
+    Workload randomly(long from, long to, double chancePerTick, PlayerAction action) {
+        steps.add((simulation, random, now) -> {
+            if (now < from || now > to) {
+                return;
+            }
+            for (StubPlayer player : simulation.getPlayers()) {
+                if (random.nextDouble() < chancePerTick) {
+                    action.run(simulation, player);
+                }
+            }
+        });
+        return this;
+    }
+    
+    Workload every(long interval, Consumer<Simulation> action) {
+        steps.add((simulation, random, now) -> {
+            if (now % interval == 0) {
+                action.accept(simulation);
+            }
+        });
+        return this;
+    }
+    
+    void run(Simulation simulation, Random random, long tick) {
+        for (Step step : steps) {
+            step.run(simulation, random, tick);
+        }
+    }
+    
+    // Chances are per player per tick, 0.001 is roughly once every 50 seconds
+    static Workload named(String name, long ticks) {
+        switch (name) {
+            case "build-event":
+                // Everyone turns it on at the start, then the usual background noise
+                return new Workload(name)
+                    .everyone(1, Simulation::commandOn)
+                    .randomly(20, ticks, 0.001, Simulation::commandOn)
+                    .randomly(20, ticks, 0.0005, Simulation::changeWorld)
+                    .randomly(20, ticks, 0.001, Simulation::mount)
+                    .randomly(20, ticks, 0.001, Simulation::glide)
+                    .randomly(20, ticks, 0.0002, Simulation::logout)
+                    .every(1200, Simulation::reload);
+            case "churn":
+                // Sessions starting and ending all the time
+                return new Workload(name)
+                    .randomly(1, ticks, 0.005, Simulation::commandOn)
+                    .randomly(1, ticks, 0.003, Simulation::commandOff)
+                    .randomly(1, ticks, 0.005, Simulation::changeWorld)
+                    .randomly(1, ticks, 0.005, Simulation::mount)
+                    .randomly(1, ticks, 0.005, Simulation::glide)
+                    .randomly(1, ticks, 0.002, Simulation::logout)
+                    .every(600, Simulation::reload);
+            case "reloads":
+                return new Workload(name)
+                    .everyone(1, Simulation::commandOn)
+                    .randomly(20, ticks, 0.001, Simulation::changeWorld)
+                    .every(20, Simulation::reload);
+            default:
+                throw new IllegalArgumentException("Unknown workload " + name + ", expected build-event, churn or reloads");
+        }
+    }
+    
+    interface PlayerAction {
+        
+        void run(Simulation simulation, StubPlayer player);
+    }
+    
+    private interface Step {
+        
+        void run(Simulation simulation, Random random, long tick);
+    }
+}
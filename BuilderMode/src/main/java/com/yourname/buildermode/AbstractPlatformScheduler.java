@@ -0,0 +1,48 @@
+package com.yourname.buildermode;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+// Off-tick work is the same on every server: virtual threads, all of them created here so
+// shutdown can stop whatever their owners left running
+public abstract class AbstractPlatformScheduler implements PlatformScheduler {
+    
+    private final ExecutorService async = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("BuilderMode-async-", 0).factory());
+    private final List<ExecutorService> workers = new CopyOnWriteArrayList<>();
+    private final List<Thread> threads = new CopyOnWriteArrayList<>();
+    
+    @Override
+    public void runAsync(Runnable task) {
+        async.execute(task);
+    }
+    
+    @Override
+    public ScheduledExecutorService newWorker(String name) {
+        ScheduledExecutorService worker = Executors.newSingleThreadScheduledExecutor(Thread.ofVirtual().name(name).factory());
+        workers.add(worker);
+        return worker;
+    }
+    
+    @Override
+    public Thread startThread(String name, Runnable task) {
+        Thread thread = Thread.ofVirtual().name(name).start(task);
+        threads.add(thread);
+        return thread;
+    }
+    
+    @Override
+    public void shutdown() {
+        async.shutdown();
+        for (ExecutorService worker : workers) {
+            worker.shutdownNow();
+        }
+        for (Thread thread : threads) {
+            thread.interrupt();
+        }
+        workers.clear();
+        threads.clear();
+    }
+}
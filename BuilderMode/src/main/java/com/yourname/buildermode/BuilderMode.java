@@ -4,99 +4,125 @@ import org.bukkit.Bukkit;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandSender;
 import org.bukkit.entity.Player;
+import org.bukkit.plugin.PluginDescriptionFile;
 import org.bukkit.plugin.java.JavaPlugin;
+import org.bukkit.plugin.java.JavaPluginLoader;
 import org.jetbrains.annotations.NotNull;
 
+import java.io.File;
 import java.util.*;
 
 public class BuilderMode extends JavaPlugin {
     
+    private MetricsRegistry metrics;
     private ConfigManager configManager;
+    private EventLog eventLog;
+    private SessionStore sessionStore;
+    private SessionLedger sessionLedger;
+    private ChunkBudget chunkBudget;
     private RenderDistanceManager renderDistanceManager;
     private MovementRestrictionManager movementManager;
-    private final Map<UUID, Long> cooldowns = new HashMap<>();
-    private final Set<UUID> elytraWarnings = new HashSet<>();
+    private CheckScheduler checkScheduler;
+    private RenderDistanceGuard renderDistanceGuard;
+    private LoadGovernor loadGovernor;
+    private PlatformScheduler scheduler;
+    
+    public BuilderMode() {
+        super();
+    }
+    
+    // Only for the benchmarks, which load the plugin outside a server without a plugin class
+    // loader. Paper deprecates this JavaPlugin constructor and the loader it takes, and has
+    // no replacement that works without one, so the warning is silenced here and nowhere else.
+    @SuppressWarnings({"deprecation", "removal"})
+    protected BuilderMode(JavaPluginLoader loader, PluginDescriptionFile description, File dataFolder, File file) {
+        super(loader, description, dataFolder, file);
+    }
     
     @Override
     public void onEnable() {
         // Create default config if it doesn't exist
         saveDefaultConfig();
         
+        // Detect the server type once, every manager schedules through the plugin's scheduler
+        scheduler = PlatformScheduler.create(this, detectFolia());
+        getLogger().info("Scheduling on " + (scheduler.isFolia() ? "Folia's region threads" : "the main thread"));
+        
+        metrics = new MetricsRegistry();
         configManager = new ConfigManager(this);
-        renderDistanceManager = new RenderDistanceManager(this, configManager);
+        eventLog = new EventLog(this, configManager);
+        eventLog.start();
+        sessionStore = configManager.isJdbcStorage() ? new JdbcStore(this, configManager) : new SessionJournal(this, configManager);
+        sessionStore.open();
+        sessionLedger = new SessionLedger(this, configManager);
+        sessionLedger.start();
+        chunkBudget = new ChunkBudget(this, configManager);
+        renderDistanceManager = new RenderDistanceManager(this, configManager, sessionStore, chunkBudget);
+        checkScheduler = new CheckScheduler(this, renderDistanceManager.getSessions());
         movementManager = new MovementRestrictionManager(this);
         
+        // Start render distance safety check
+        renderDistanceGuard = new RenderDistanceGuard(this, configManager, renderDistanceManager, checkScheduler);
+        loadGovernor = new LoadGovernor(this, configManager, renderDistanceManager, checkScheduler);
+        
         // Register events
-        getServer().getPluginManager().registerEvents(movementManager, this);
+        // Handlers are only timed for /bm stats when metrics.time-listeners is on, the
+        // restrictions register themselves the same way once the first session starts
+        metrics.registerEvents(new SessionListener(this), this, configManager.isListenerTimingEnabled());
+        renderDistanceManager.getSessions().addActivityListener(movementManager);
+        getServer().getPluginManager().registerEvents(renderDistanceGuard, this);
+        getServer().getPluginManager().registerEvents(chunkBudget, this);
+        getServer().getPluginManager().registerEvents(configManager, this);
         getLogger().info("Event listeners registered successfully");
         
-        // Start render distance safety check
-        startRenderDistanceSafetyCheck();
+        metrics.registerMBean(this);
+        
+        // Bring back cooldowns and sessions from before the restart
+        renderDistanceManager.restore();
         
         getLogger().info("BuilderMode has been enabled!");
     }
     
     @Override
     public void onDisable() {
-        renderDistanceManager.disableAll();
-        getLogger().info("BuilderMode has been disabled!");
-    }
-    
-    private void startRenderDistanceSafetyCheck() {
-        long interval = configManager.getSafetyCheckInterval() * 20L; // Convert seconds to ticks
-        
-        if (configManager.isVerboseEnabled()) {
-            getLogger().info("Starting safety check task with interval: " + configManager.getSafetyCheckInterval() + " seconds");
-        }
-        
-        if (isFolia()) {
-            getServer().getGlobalRegionScheduler().runAtFixedRate(this, (task) -> {
-                performSafetyCheck();
-            }, interval, interval);
+        // Sessions ending now must not pull anyone in from the queue
+        chunkBudget.close();
+        if (sessionStore.isEnabled()) {
+            renderDistanceManager.suspendAll();
         } else {
-            getServer().getScheduler().runTaskTimer(this, () -> {
-                performSafetyCheck();
-            }, interval, interval);
+            renderDistanceManager.disableAll();
         }
+        sessionStore.close();
+        sessionLedger.close();
+        metrics.unregisterMBean();
+        eventLog.close();
+        scheduler.shutdown();
+        getLogger().info("BuilderMode has been disabled!");
     }
     
-    private void performSafetyCheck() {
-        int defaultDistance = configManager.getDefaultRenderDistance();
-        int resetCount = 0;
-        int totalChecked = 0;
-        
-        if (configManager.isVerboseEnabled()) {
-            getLogger().info("Running safety check...");
-        }
-        
-        for (Player player : getServer().getOnlinePlayers()) {
-            totalChecked++;
-            if (!renderDistanceManager.isActive(player)) {
-                int currentDistance = player.getViewDistance();
-                
-                if (configManager.isVerboseEnabled()) {
-                    getLogger().info("Checking " + player.getName() + ": current=" + currentDistance + ", default=" + defaultDistance + ", buildermode=" + renderDistanceManager.isActive(player));
-                }
-                
-                if (currentDistance != defaultDistance) {
-                    player.setViewDistance(defaultDistance);
-                    resetCount++;
-                    
-                    if (configManager.isVerboseEnabled()) {
-                        getLogger().info("Safety check: Reset " + player.getName() + "'s render distance from " + currentDistance + " to " + defaultDistance);
-                    }
-                }
+    // Re-arms only what the reload changed, from the thread that owns the tasks
+    private void applyChanges(ConfigManager.Changes changes) {
+        Runnable apply = () -> {
+            if (changes.areSweepIntervalsChanged()) {
+                movementManager.registerSweeps();
+                renderDistanceGuard.rescheduleSweep();
             }
-        }
+            if (changes.isFlushIntervalChanged()) {
+                sessionStore.rescheduleFlush();
+                sessionLedger.rescheduleFlush();
+            }
+            if (changes.affectsSessions()) {
+                renderDistanceManager.applyChanges(changes);
+            }
+        };
         
-        if (configManager.isVerboseEnabled()) {
-            getLogger().info("Safety check completed: Checked " + totalChecked + " player(s), reset " + resetCount + " player(s)");
-        }
+        scheduler.runGlobal(apply);
     }
     
-    private boolean isFolia() {
+    // paper-api ships Folia's scheduler interfaces, so only a class of Folia's server tells them apart
+    protected boolean detectFolia() {
         try {
-            Class.forName("io.papermc.paper.threadedregions.scheduler.ScheduledTask");
+            Class.forName("io.papermc.paper.threadedregions.RegionizedServer");
             return true;
         } catch (ClassNotFoundException e) {
             return false;
@@ -112,14 +138,36 @@ public class BuilderMode extends JavaPlugin {
                 return true;
             }
             
-            reloadConfig();
-            configManager.reload();
-            sender.sendMessage(configManager.getMessage("config-reloaded"));
+            configManager.reload().whenComplete((changes, error) -> {
+                if (error != null) {
+                    getLogger().warning("Failed to reload configuration: " + error.getMessage());
+                    sender.sendMessage(configManager.getMessage("reload-failed"));
+                } else {
+                    sender.sendMessage(configManager.getMessage("config-reloaded"));
+                    applyChanges(changes);
+                }
+                
+                // A reload is where a missed world change is most likely to surface
+                renderDistanceManager.reconcileDimensions();
+                // The budget may have grown
+                chunkBudget.drainAll();
+            });
             return true;
         }
         
         if (command.getName().equalsIgnoreCase("buildermode")) {
             
+            // Admin commands work from the console too
+            if (args.length > 0 && args[0].equalsIgnoreCase("queue")) {
+                return handleQueueCommand(sender);
+            }
+            if (args.length > 0 && args[0].equalsIgnoreCase("stats")) {
+                return handleStatsCommand(sender);
+            }
+            if (args.length > 0 && args[0].equalsIgnoreCase("ledger")) {
+                return handleLedgerCommand(sender, args);
+            }
+            
             if (!(sender instanceof Player)) {
                 sender.sendMessage(configManager.getMessage("players-only"));
                 return true;
@@ -172,6 +220,13 @@ public class BuilderMode extends JavaPlugin {
                         completions.add(option);
                     }
                 }
+                if (sender.hasPermission("buildermode.admin")) {
+                    for (String option : Arrays.asList("queue", "stats", "ledger")) {
+                        if (option.startsWith(input)) {
+                            completions.add(option);
+                        }
+                    }
+                }
                 
                 return completions;
             }
@@ -186,46 +241,75 @@ public class BuilderMode extends JavaPlugin {
             return true;
         }
         
+        int position = chunkBudget.getQueuePosition(player);
+        if (position > 0) {
+            player.sendMessage(configManager.getTemplate("info-queued").render(position));
+            sendBudgetInfo(player);
+            return true;
+        }
+        
         if (renderDistanceManager.isActive(player)) {
             long timeLeft = renderDistanceManager.getTimeRemaining(player);
-            String message = configManager.getMessage("info-active")
-                .replace("{time}", String.valueOf(timeLeft));
-            player.sendMessage(message);
+            player.sendMessage(configManager.getTemplate("info-active").render(timeLeft));
+            sendDistanceInfo(player);
         } else {
-            long cooldownTime = configManager.getCooldown(player.getWorld().getEnvironment());
+            long cooldownTime = configManager.getCooldown(player.getWorld());
             long currentTime = System.currentTimeMillis();
+            long lastUsed = renderDistanceManager.getLastUsed(player);
             
-            if (cooldowns.containsKey(player.getUniqueId())) {
-                long lastUsed = cooldowns.get(player.getUniqueId());
+            if (lastUsed != 0) {
                 long timeLeft = (cooldownTime - (currentTime - lastUsed)) / 1000;
                 
                 if (timeLeft > 0) {
-                    String message = configManager.getMessage("info-cooldown")
-                        .replace("{time}", String.valueOf(timeLeft));
-                    player.sendMessage(message);
+                    player.sendMessage(configManager.getTemplate("info-cooldown").render(timeLeft));
                 } else {
                     player.sendMessage(configManager.getMessage("info-ready"));
                 }
             } else {
                 player.sendMessage(configManager.getMessage("info-ready"));
             }
+            
+            if (renderDistanceManager.isRamping(player)) {
+                sendDistanceInfo(player);
+            }
         }
         
+        sendBudgetInfo(player);
         return true;
     }
     
+    private void sendBudgetInfo(Player player) {
+        if (!configManager.isBudgetEnabled()) {
+            return;
+        }
+        
+        ChunkBudget.WorldStatus status = chunkBudget.getStatus(player.getWorld());
+        player.sendMessage(configManager.getTemplate("info-budget").render(status.getUsed(), status.getLimit(), status.getQueue().size()));
+    }
+    
+    private void sendDistanceInfo(Player player) {
+        player.sendMessage(configManager.getTemplate("info-distance")
+            .render(renderDistanceManager.getCurrentDistance(player), renderDistanceManager.getTargetDistance(player)));
+    }
+    
     private boolean handleOffCommand(Player player) {
         if (!configManager.isPluginEnabled()) {
             player.sendMessage(configManager.getMessage("plugin-disabled"));
             return true;
         }
         
+        if (chunkBudget.leaveQueue(player)) {
+            player.sendMessage(configManager.getMessage("queue-cancelled"));
+            return true;
+        }
+        
         if (!renderDistanceManager.isActive(player)) {
             player.sendMessage(configManager.getMessage("not-active"));
             return true;
         }
         
         renderDistanceManager.disable(player);
+        metrics.counter("sessions.disabled.manual").increment();
         player.sendMessage(configManager.getMessage("disabled-manually"));
         return true;
     }
@@ -247,61 +331,214 @@ public class BuilderMode extends JavaPlugin {
             player.sendMessage(configManager.getMessage("dismounted"));
         }
         
+        PlayerSession session = renderDistanceManager.getSessions().getOrCreate(player.getUniqueId());
+        
         // Check for elytra warning
         if (configManager.isElytraDisabled() && movementManager.isWearingElytra(player)) {
-            if (!elytraWarnings.contains(player.getUniqueId())) {
-                elytraWarnings.add(player.getUniqueId());
+            if (!session.isElytraWarned()) {
+                session.setElytraWarned(true);
                 player.sendMessage(configManager.getMessage("elytra-warning"));
                 return true;
             } else {
                 // Second attempt - remove warning flag
-                elytraWarnings.remove(player.getUniqueId());
+                session.setElytraWarned(false);
             }
         }
         
-        long cooldownTime = configManager.getCooldown(player.getWorld().getEnvironment());
+        long cooldownTime = configManager.getCooldown(player.getWorld());
         long currentTime = System.currentTimeMillis();
         
-        if (cooldowns.containsKey(player.getUniqueId())) {
-            long lastUsed = cooldowns.get(player.getUniqueId());
+        long lastUsed = renderDistanceManager.getLastUsed(player);
+        if (lastUsed != 0) {
             long timeLeft = (cooldownTime - (currentTime - lastUsed)) / 1000;
             
             if (timeLeft > 0) {
-                String message = configManager.getMessage("on-cooldown")
-                    .replace("{time}", String.valueOf(timeLeft));
-                player.sendMessage(message);
+                player.sendMessage(configManager.getTemplate("on-cooldown").render(timeLeft));
                 return true;
             }
         }
         
-        renderDistanceManager.enable(player);
+        // Wait in line if the world's chunk budget is used up
+        int position = chunkBudget.acquire(player);
+        if (position > 0) {
+            player.sendMessage(configManager.getTemplate("queued").render(position));
+            return true;
+        }
+        
+        activate(player);
+        return true;
+    }
+    
+    // Called by the chunk budget once a queued player fits, from any thread
+    public void activateQueued(Player player) {
+        // Next tick, so we never activate in the middle of another player's disable
+        scheduler.runAtEntity(player, () -> {
+            activate(player);
+        }, () -> {
+            chunkBudget.release(player);
+        });
+    }
+    
+    private void activate(Player player) {
+        if (!player.isOnline() || !renderDistanceManager.enable(player)) {
+            chunkBudget.release(player);
+            return;
+        }
+        
+        // Queued players may have mounted something while they waited
+        if (configManager.isEntityRidingDisabled() && player.isInsideVehicle()) {
+            player.leaveVehicle();
+            player.sendMessage(configManager.getMessage("dismounted"));
+        }
+        
+        // Take off an equipped elytra now that the warning was confirmed
+        if (configManager.isElytraDisabled()) {
+            movementManager.checkAndRemoveElytra(player);
+        }
+        
         // Set cooldown immediately when activated
-        cooldowns.put(player.getUniqueId(), currentTime);
+        renderDistanceManager.startCooldown(player.getUniqueId(), System.currentTimeMillis());
+        
+        int distance = renderDistanceManager.getAllowedDistance(player.getWorld());
+        int duration = configManager.getDuration(player.getWorld());
+        
+        player.sendMessage(configManager.getTemplate("activated").render(distance, duration));
+    }
+    
+    private boolean handleQueueCommand(CommandSender sender) {
+        if (!sender.hasPermission("buildermode.admin")) {
+            sender.sendMessage(configManager.getMessage("no-permission"));
+            return true;
+        }
         
-        int distance = configManager.getRenderDistance(player.getWorld().getEnvironment());
-        int duration = configManager.getDuration(player.getWorld().getEnvironment());
+        List<ChunkBudget.WorldStatus> statuses = chunkBudget.getStatuses();
+        if (statuses.isEmpty()) {
+            sender.sendMessage(configManager.getMessage("queue-empty"));
+            return true;
+        }
         
-        String message = configManager.getMessage("activated")
-            .replace("{distance}", String.valueOf(distance))
-            .replace("{duration}", String.valueOf(duration));
-        player.sendMessage(message);
+        for (ChunkBudget.WorldStatus status : statuses) {
+            sender.sendMessage(configManager.getTemplate("queue-world")
+                .render(status.getWorldName(), status.getUsed(), status.getLimit(), status.getSessions(), status.getQueue().size()));
+            
+            if (!status.getQueue().isEmpty()) {
+                sender.sendMessage(configManager.getTemplate("queue-players").render(String.join(", ", status.getQueue())));
+            }
+        }
+        return true;
+    }
+    
+    private boolean handleStatsCommand(CommandSender sender) {
+        if (!sender.hasPermission("buildermode.admin")) {
+            sender.sendMessage(configManager.getMessage("no-permission"));
+            return true;
+        }
         
+        sender.sendMessage(configManager.getMessage("stats-header"));
+        for (Map.Entry<String, java.util.concurrent.atomic.LongAdder> entry : metrics.getCounters().entrySet()) {
+            sender.sendMessage(configManager.getTemplate("stats-value").render(entry.getKey(), entry.getValue().sum()));
+        }
+        for (Map.Entry<String, java.util.function.LongSupplier> entry : metrics.getGauges().entrySet()) {
+            sender.sendMessage(configManager.getTemplate("stats-value").render(entry.getKey(), entry.getValue().getAsLong()));
+        }
+        for (Map.Entry<String, MetricsRegistry.Histogram> entry : metrics.getTimers().entrySet()) {
+            MetricsRegistry.Histogram timer = entry.getValue();
+            sender.sendMessage(configManager.getTemplate("stats-timer").render(entry.getKey(), timer.getCount(),
+                formatNanos(timer.getMean()), formatNanos(timer.getPercentile(0.99)), formatNanos(timer.getMax())));
+        }
         return true;
     }
     
+    // Adds up the session ledger off the main thread, /bm ledger [hours]
+    private boolean handleLedgerCommand(CommandSender sender, String[] args) {
+        if (!sender.hasPermission("buildermode.admin")) {
+            sender.sendMessage(configManager.getMessage("no-permission"));
+            return true;
+        }
+        
+        int hours = 24;
+        if (args.length > 1) {
+            try {
+                hours = Math.max(1, Integer.parseInt(args[1]));
+            } catch (NumberFormatException e) {
+                sender.sendMessage(configManager.getMessage("invalid-usage"));
+                return true;
+            }
+        }
+        
+        int window = hours;
+        sessionLedger.aggregate(window).whenComplete((summary, error) -> {
+            if (error != null) {
+                getLogger().warning("Failed to read the session ledger: " + error.getMessage());
+                sender.sendMessage(configManager.getMessage("ledger-failed"));
+                return;
+            }
+            
+            SessionLedger.Totals total = summary.getTotal();
+            sender.sendMessage(configManager.getTemplate("ledger-header").render(window, total.getSessions(), total.getChunkSeconds()));
+            sender.sendMessage(configManager.getTemplate("ledger-reasons").render(summary.getEnded(SessionLedger.EndReason.EXPIRED),
+                summary.getEnded(SessionLedger.EndReason.MANUAL), summary.getEnded(SessionLedger.EndReason.DIMENSION_CHANGE),
+                summary.getEnded(SessionLedger.EndReason.LOGOUT), summary.getEnded(SessionLedger.EndReason.SHUTDOWN)));
+            for (SessionLedger.Totals world : summary.getWorlds()) {
+                sender.sendMessage(configManager.getTemplate("ledger-world").render(world.getName(), world.getSessions(), world.getChunkSeconds()));
+            }
+            
+            List<SessionLedger.Totals> players = summary.getTopPlayers(10);
+            if (!players.isEmpty()) {
+                sender.sendMessage(configManager.getMessage("ledger-top"));
+            }
+            for (SessionLedger.Totals player : players) {
+                sender.sendMessage(configManager.getTemplate("ledger-player").render(player.getName(), player.getSessions(),
+                    player.getDurationMillis() / 60000L, player.getChunkSeconds()));
+            }
+        });
+        return true;
+    }
+    
+    private static String formatNanos(long nanos) {
+        if (nanos >= 1_000_000L) {
+            return String.format("%.2fms", nanos / 1_000_000.0);
+        }
+        return String.format("%.1fµs", nanos / 1_000.0);
+    }
+    
+    public MetricsRegistry getMetrics() {
+        return metrics;
+    }
+    
+    public PlatformScheduler getPlatformScheduler() {
+        return scheduler;
+    }
+    
+    public SessionLedger getSessionLedger() {
+        return sessionLedger;
+    }
+    
+    public EventLog getEventLog() {
+        return eventLog;
+    }
+    
     public ConfigManager getConfigManager() {
         return configManager;
     }
     
+    public ChunkBudget getChunkBudget() {
+        return chunkBudget;
+    }
+    
     public RenderDistanceManager getRenderDistanceManager() {
         return renderDistanceManager;
     }
     
-    public void removeElytraWarning(UUID uuid) {
-        elytraWarnings.remove(uuid);
+    public CheckScheduler getCheckScheduler() {
+        return checkScheduler;
+    }
+    
+    public RenderDistanceGuard getRenderDistanceGuard() {
+        return renderDistanceGuard;
     }
     
-    public void setCooldown(UUID uuid) {
-        cooldowns.put(uuid, System.currentTimeMillis());
+    public LoadGovernor getLoadGovernor() {
+        return loadGovernor;
     }
 }
@@ -0,0 +1,53 @@
+package com.yourname.buildermode;
+
+import org.bukkit.Location;
+import org.bukkit.entity.Entity;
+
+import java.util.function.Consumer;
+
+// Paper and Spigot: everything that touches the world runs on the main thread
+public class BukkitPlatformScheduler extends AbstractPlatformScheduler {
+    
+    private final BuilderMode plugin;
+    
+    public BukkitPlatformScheduler(BuilderMode plugin) {
+        this.plugin = plugin;
+    }
+    
+    @Override
+    public boolean isFolia() {
+        return false;
+    }
+    
+    @Override
+    public void runGlobal(Runnable task) {
+        plugin.getServer().getScheduler().runTask(plugin, task);
+    }
+    
+    @Override
+    public Task runGlobalTimer(Runnable task, long delayTicks, long periodTicks) {
+        return plugin.getServer().getScheduler().runTaskTimer(plugin, task, delayTicks, periodTicks)::cancel;
+    }
+    
+    @Override
+    public void runAtLocation(Location location, Runnable task) {
+        plugin.getServer().getScheduler().runTask(plugin, task);
+    }
+    
+    // Same contract as Folia's entity scheduler, a player who logged out in between is retired
+    @Override
+    public void runAtEntity(Entity entity, Runnable task, Runnable retired) {
+        plugin.getServer().getScheduler().runTask(plugin, () -> {
+            if (entity.isValid()) {
+                task.run();
+            } else if (retired != null) {
+                retired.run();
+            }
+        });
+    }
+    
+    @Override
+    public <T extends Entity> void dispatch(T entity, Consumer<? super T> task, Runnable retired) {
+        task.accept(entity);
+    }
+}
@@ -0,0 +1,107 @@
+package com.yourname.buildermode;
+
+import org.bukkit.entity.Player;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+// Runs periodic per-player checks for active sessions only. Each session has its own phase,
+// so a check with a 100 tick interval touches 1/100th of the sessions on any given tick.
+// On Folia every check is handed to the player's entity scheduler so it runs on the region
+// thread that owns the player. The task driving the checks and the tick actions only exists
+// while at least one session is active.
+public class CheckScheduler implements SessionRegistry.ActivityListener {
+    
+    private final BuilderMode plugin;
+    private final SessionRegistry sessions;
+    private final PlatformScheduler scheduler;
+    private final List<Check> checks = new CopyOnWriteArrayList<>();
+    private final List<Runnable> tickActions = new CopyOnWriteArrayList<>();
+    private long tick;
+    // Guarded by this, cancelled while there are no sessions
+    private PlatformScheduler.Task tickTask;
+    
+    public CheckScheduler(BuilderMode plugin, SessionRegistry sessions) {
+        this.plugin = plugin;
+        this.sessions = sessions;
+        this.scheduler = plugin.getPlatformScheduler();
+        
+        sessions.addActivityListener(this);
+    }
+    
+    @Override
+    public synchronized void onFirstStarted() {
+        if (tickTask == null) {
+            tickTask = scheduler.runGlobalTimer(this::tick, 1L, 1L);
+        }
+    }
+    
+    @Override
+    public synchronized void onLastEnded() {
+        if (tickTask != null) {
+            tickTask.cancel();
+            tickTask = null;
+        }
+    }
+    
+    // Registers a check that runs every intervalTicks for each active player. Registering
+    // a name again replaces the earlier check, an interval of 0 or less just removes it.
+    public synchronized void register(String name, long intervalTicks, Consumer<Player> action) {
+        checks.removeIf((check) -> check.name.equals(name));
+        if (intervalTicks > 0) {
+            checks.add(new Check(name, intervalTicks, plugin.getMetrics().timer(name).time(action)));
+        }
+    }
+    
+    // Runs an action on the driving thread once per tick while sessions are active, before
+    // the per-player checks
+    public void everyTick(Runnable action) {
+        tickActions.add(action);
+    }
+    
+    public void dispatch(Player player, Consumer<Player> action) {
+        scheduler.dispatch(player, action, null);
+    }
+    
+    private void tick() {
+        tick++;
+        
+        for (Runnable action : tickActions) {
+            action.run();
+        }
+        if (!checks.isEmpty()) {
+            runChecks();
+        }
+    }
+    
+    private void runChecks() {
+        long now = tick;
+        for (PlayerSession session : sessions.active()) {
+            PlayerSession.Activation activation = session.getActivation();
+            if (activation.getState() != SessionState.ACTIVE) {
+                continue;
+            }
+            
+            long phase = now + session.getPhase();
+            for (Check check : checks) {
+                if (phase % check.interval == 0) {
+                    dispatch(activation.getPlayer(), check.action);
+                }
+            }
+        }
+    }
+    
+    private static final class Check {
+        
+        private final String name;
+        private final long interval;
+        private final Consumer<Player> action;
+        
+        private Check(String name, long interval, Consumer<Player> action) {
+            this.name = name;
+            this.interval = interval;
+            this.action = action;
+        }
+    }
+}
@@ -0,0 +1,300 @@
+package com.yourname.buildermode;
+
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerChangedWorldEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+// Limits how much chunk area BuilderMode sessions may hold per world. A session costs
+// (2r+1)^2 chunks at its render distance. Activations that don't fit wait in a FIFO queue
+// per world and are activated automatically once enough sessions have ended.
+public class ChunkBudget implements Listener {
+    
+    private final BuilderMode plugin;
+    private final ConfigManager configManager;
+    
+    // Only touched while holding the lock
+    private final Map<UUID, WorldBudget> worlds = new HashMap<>();
+    private final Map<UUID, Reservation> reservations = new HashMap<>();
+    private final Map<UUID, WorldBudget> queuedIn = new HashMap<>();
+    private boolean closed;
+    
+    public ChunkBudget(BuilderMode plugin, ConfigManager configManager) {
+        this.plugin = plugin;
+        this.configManager = configManager;
+    }
+    
+    public static long cost(int distance) {
+        long side = 2L * distance + 1;
+        return side * side;
+    }
+    
+    // A session's cost at the distance configured for the world
+    private long cost(WorldBudget world) {
+        return cost(configManager.getWorldSettings(world.uid, world.environment).getRenderDistance());
+    }
+    
+    // Returns 0 if the player may activate now, otherwise their position in the queue
+    public synchronized int acquire(Player player) {
+        UUID playerId = player.getUniqueId();
+        if (reservations.containsKey(playerId)) {
+            return 0;
+        }
+        
+        WorldBudget queued = queuedIn.get(playerId);
+        if (queued != null) {
+            return queued.position(player);
+        }
+        
+        WorldBudget world = getWorld(player.getWorld());
+        long cost = cost(world);
+        
+        // Nobody skips the queue, even if their session would fit
+        if (world.queue.isEmpty() && fits(world, cost)) {
+            reserve(playerId, world, cost);
+            return 0;
+        }
+        
+        world.queue.add(player);
+        queuedIn.put(playerId, world);
+        return world.queue.size();
+    }
+    
+    // Counts a session against the budget even if it doesn't fit, e.g. one resumed after a restart
+    public synchronized void forceAcquire(Player player) {
+        if (!reservations.containsKey(player.getUniqueId())) {
+            WorldBudget world = getWorld(player.getWorld());
+            reserve(player.getUniqueId(), world, cost(world));
+        }
+    }
+    
+    public void release(Player player) {
+        List<Player> admitted;
+        synchronized (this) {
+            Reservation reservation = reservations.remove(player.getUniqueId());
+            if (reservation == null) {
+                return;
+            }
+            
+            reservation.world.used -= reservation.cost;
+            reservation.world.sessions--;
+            admitted = drain(reservation.world);
+        }
+        activate(admitted);
+    }
+    
+    // Returns true if the player was waiting in a queue
+    public boolean leaveQueue(Player player) {
+        List<Player> admitted;
+        synchronized (this) {
+            WorldBudget world = queuedIn.remove(player.getUniqueId());
+            if (world == null) {
+                return false;
+            }
+            
+            world.queue.remove(player);
+            admitted = drain(world);
+        }
+        activate(admitted);
+        return true;
+    }
+    
+    // Admits whatever fits now, e.g. after a reload raised the budget
+    public void drainAll() {
+        List<Player> admitted = new ArrayList<>();
+        synchronized (this) {
+            for (WorldBudget world : worlds.values()) {
+                admitted.addAll(drain(world));
+            }
+        }
+        activate(admitted);
+    }
+    
+    // Stops admitting players, so ending sessions on shutdown doesn't start new ones
+    public synchronized void close() {
+        closed = true;
+        for (WorldBudget world : worlds.values()) {
+            world.queue.clear();
+        }
+        queuedIn.clear();
+    }
+    
+    public synchronized int getQueuePosition(Player player) {
+        WorldBudget world = queuedIn.get(player.getUniqueId());
+        return world != null ? world.position(player) : 0;
+    }
+    
+    public synchronized WorldStatus getStatus(World world) {
+        WorldBudget budget = worlds.get(world.getUID());
+        if (budget == null) {
+            return new WorldStatus(world.getName(), 0L, configManager.getBudgetChunksPerWorld(), 0, Collections.emptyList());
+        }
+        return budget.status(configManager.getBudgetChunksPerWorld());
+    }
+    
+    // Worlds with sessions or a queue, for the admin command
+    public synchronized List<WorldStatus> getStatuses() {
+        long limit = configManager.getBudgetChunksPerWorld();
+        List<WorldStatus> statuses = new ArrayList<>();
+        for (WorldBudget world : worlds.values()) {
+            if (world.sessions > 0 || !world.queue.isEmpty()) {
+                statuses.add(world.status(limit));
+            }
+        }
+        return statuses;
+    }
+    
+    private boolean fits(WorldBudget world, long cost) {
+        // A world with no sessions always admits one, however large
+        return !configManager.isBudgetEnabled() || world.sessions == 0 || world.used + cost <= configManager.getBudgetChunksPerWorld();
+    }
+    
+    private void reserve(UUID playerId, WorldBudget world, long cost) {
+        reservations.put(playerId, new Reservation(world, cost));
+        world.used += cost;
+        world.sessions++;
+    }
+    
+    private List<Player> drain(WorldBudget world) {
+        if (closed || world.queue.isEmpty()) {
+            return Collections.emptyList();
+        }
+        
+        List<Player> admitted = new ArrayList<>();
+        long cost = cost(world);
+        while (!world.queue.isEmpty()) {
+            Player next = world.queue.peek();
+            if (next.isOnline() && !fits(world, cost)) {
+                break;
+            }
+            
+            world.queue.poll();
+            queuedIn.remove(next.getUniqueId());
+            if (next.isOnline()) {
+                reserve(next.getUniqueId(), world, cost);
+                admitted.add(next);
+            }
+        }
+        return admitted;
+    }
+    
+    // Runs outside the lock, activation may end up calling back into the budget
+    private void activate(List<Player> admitted) {
+        for (Player player : admitted) {
+            plugin.activateQueued(player);
+        }
+    }
+    
+    private WorldBudget getWorld(World world) {
+        return worlds.computeIfAbsent(world.getUID(), (key) -> new WorldBudget(world.getUID(), world.getName(), world.getEnvironment()));
+    }
+    
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerChangedWorld(PlayerChangedWorldEvent event) {
+        Player player = event.getPlayer();
+        if (leaveQueue(player)) {
+            player.sendMessage(configManager.getMessage("queue-left"));
+        }
+    }
+    
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerQuit(PlayerQuitEvent event) {
+        leaveQueue(event.getPlayer());
+    }
+    
+    public static final class WorldStatus {
+        
+        private final String worldName;
+        private final long used;
+        private final long limit;
+        private final int sessions;
+        private final List<String> queue;
+        
+        private WorldStatus(String worldName, long used, long limit, int sessions, List<String> queue) {
+            this.worldName = worldName;
+            this.used = used;
+            this.limit = limit;
+            this.sessions = sessions;
+            this.queue = queue;
+        }
+        
+        public String getWorldName() {
+            return worldName;
+        }
+        
+        public long getUsed() {
+            return used;
+        }
+        
+        public long getLimit() {
+            return limit;
+        }
+        
+        public int getSessions() {
+            return sessions;
+        }
+        
+        public List<String> getQueue() {
+            return queue;
+        }
+    }
+    
+    private static final class WorldBudget {
+        
+        private final UUID uid;
+        private final String name;
+        private final World.Environment environment;
+        private final ArrayDeque<Player> queue = new ArrayDeque<>();
+        private long used;
+        private int sessions;
+        
+        private WorldBudget(UUID uid, String name, World.Environment environment) {
+            this.uid = uid;
+            this.name = name;
+            this.environment = environment;
+        }
+        
+        private int position(Player player) {
+            int position = 1;
+            Iterator<Player> iterator = queue.iterator();
+            while (iterator.hasNext()) {
+                if (iterator.next() == player) {
+                    return position;
+                }
+                position++;
+            }
+            return 0;
+        }
+        
+        private WorldStatus status(long limit) {
+            List<String> names = new ArrayList<>(queue.size());
+            for (Player player : queue) {
+                names.add(player.getName());
+            }
+            return new WorldStatus(name, used, limit, sessions, names);
+        }
+    }
+    
+    private static final class Reservation {
+        
+        private final WorldBudget world;
+        private final long cost;
+        
+        private Reservation(WorldBudget world, long cost) {
+            this.world = world;
+            this.cost = cost;
+        }
+    }
+}
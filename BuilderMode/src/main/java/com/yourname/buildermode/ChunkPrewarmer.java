@@ -0,0 +1,297 @@
+package com.yourname.buildermode;
+
+import org.bukkit.Chunk;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Loads the chunks a player is about to see before their distance is raised, so the server
+// loads and generates them asynchronously instead of all at once as the view expands.
+// Chunks are requested closest first, with a limit on requests in flight across all players.
+public class ChunkPrewarmer {
+    
+    // How many chunks are checked with isChunkGenerated to estimate the ungenerated share
+    private static final int SAMPLE_SIZE = 64;
+    
+    private final BuilderMode plugin;
+    private final ConfigManager configManager;
+    private final Map<Player, Job> jobs = new ConcurrentHashMap<>();
+    // Only touched while holding the lock
+    private final Queue<Job> waiting = new ArrayDeque<>();
+    private int inFlight;
+    private volatile long tick;
+    
+    public ChunkPrewarmer(BuilderMode plugin, ConfigManager configManager) {
+        this.plugin = plugin;
+        this.configManager = configManager;
+    }
+    
+    // Works out which chunks would be added between the two radii around the player
+    public Plan plan(Player player, int fromRadius, int toRadius) {
+        if (!configManager.isPrewarmEnabled() || toRadius <= fromRadius) {
+            return Plan.NONE;
+        }
+        
+        World world = player.getWorld();
+        int centerX = player.getLocation().getBlockX() >> 4;
+        int centerZ = player.getLocation().getBlockZ() >> 4;
+        
+        // Ring by ring, and within a ring the chunks nearest the player first
+        List<long[]> chunks = new ArrayList<>();
+        for (int radius = Math.max(0, fromRadius) + 1; radius <= toRadius; radius++) {
+            List<long[]> ring = new ArrayList<>(8 * radius);
+            for (int dx = -radius; dx <= radius; dx++) {
+                for (int dz = -radius; dz <= radius; dz++) {
+                    if (Math.max(Math.abs(dx), Math.abs(dz)) == radius) {
+                        ring.add(new long[] {centerX + dx, centerZ + dz, (long) dx * dx + (long) dz * dz});
+                    }
+                }
+            }
+            ring.sort((a, b) -> Long.compare(a[2], b[2]));
+            chunks.addAll(ring);
+        }
+        
+        // Sample evenly across the area rather than asking about every chunk
+        int step = Math.max(1, chunks.size() / SAMPLE_SIZE);
+        int sampled = 0;
+        int ungenerated = 0;
+        for (int i = 0; i < chunks.size(); i += step) {
+            long[] chunk = chunks.get(i);
+            if (!world.isChunkGenerated((int) chunk[0], (int) chunk[1])) {
+                ungenerated++;
+            }
+            sampled++;
+        }
+        
+        double ungeneratedShare = sampled == 0 ? 0.0 : (double) ungenerated / sampled;
+        return new Plan(world, chunks, ungeneratedShare >= configManager.getPrewarmUngeneratedThreshold());
+    }
+    
+    // Runs onReady once enough of the plan's chunks are loaded, or when the timeout runs out
+    public void start(Player player, Plan plan, Runnable onReady) {
+        if (plan.chunks.isEmpty()) {
+            onReady.run();
+            return;
+        }
+        
+        int concurrency = plan.mostlyUngenerated ? configManager.getPrewarmSlowConcurrency() : Integer.MAX_VALUE;
+        int required = (int) Math.ceil(plan.chunks.size() * configManager.getPrewarmReadyFraction());
+        long deadline = tick + configManager.getPrewarmTimeout();
+        Job job = new Job(player, plan, Math.max(1, required), concurrency, deadline, onReady);
+        
+        Job previous = jobs.put(player, job);
+        if (previous != null) {
+            previous.cancelled = true;
+            release(previous);
+        }
+        
+        synchronized (this) {
+            waiting.add(job);
+        }
+        pump();
+    }
+    
+    public void cancel(Player player) {
+        Job job = jobs.remove(player);
+        if (job != null) {
+            job.cancelled = true;
+            release(job);
+        }
+    }
+    
+    public void cancelAll() {
+        for (Job job : jobs.values()) {
+            job.cancelled = true;
+            release(job);
+        }
+        jobs.clear();
+    }
+    
+    public boolean isPrewarming(Player player) {
+        return jobs.containsKey(player);
+    }
+    
+    public boolean isIdle() {
+        return jobs.isEmpty();
+    }
+    
+    // Called once per tick by the render distance manager's ticker
+    public void tick() {
+        long now = ++tick;
+        if (jobs.isEmpty()) {
+            return;
+        }
+        
+        for (Job job : jobs.values()) {
+            if (now >= job.deadline) {
+                // Taking too long, raise the distance anyway and let the server catch up
+                finish(job);
+            }
+        }
+    }
+    
+    private void pump() {
+        List<Request> requests = new ArrayList<>();
+        
+        synchronized (this) {
+            int limit = configManager.getPrewarmMaxConcurrent();
+            // Round robin, one chunk per job per pass, so one player can't hold every slot
+            while (inFlight < limit && !waiting.isEmpty()) {
+                Iterator<Job> iterator = waiting.iterator();
+                boolean issued = false;
+                
+                while (iterator.hasNext() && inFlight < limit) {
+                    Job job = iterator.next();
+                    if (job.cancelled || job.ready || job.next >= job.plan.chunks.size()) {
+                        iterator.remove();
+                        continue;
+                    }
+                    if (job.inFlight >= job.concurrency) {
+                        continue;
+                    }
+                    
+                    long[] chunk = job.plan.chunks.get(job.next++);
+                    job.inFlight++;
+                    inFlight++;
+                    requests.add(new Request(job, (int) chunk[0], (int) chunk[1]));
+                    issued = true;
+                }
+                
+                if (!issued) {
+                    break;
+                }
+            }
+        }
+        
+        // Outside the lock, a chunk that is already loaded completes immediately
+        for (Request request : requests) {
+            request.job.plan.world.getChunkAtAsync(request.x, request.z, true).whenComplete((chunk, error) -> {
+                completed(request, chunk, error);
+            });
+        }
+    }
+    
+    private void completed(Request request, Chunk chunk, Throwable error) {
+        Job job = request.job;
+        boolean ready;
+        synchronized (this) {
+            inFlight--;
+            job.inFlight--;
+            
+            // A failed load doesn't count, if too many fail the timeout raises the distance
+            if (error == null && chunk != null) {
+                job.loaded++;
+                // Held until the distance is raised, so the chunk isn't unloaded again before
+                // the player's own view keeps it. A released job gets no new tickets.
+                if (!job.released) {
+                    job.plan.world.addPluginChunkTicket(request.x, request.z, plugin);
+                    job.tickets.add(request);
+                }
+            }
+            ready = !job.cancelled && !job.ready && job.loaded >= job.required;
+        }
+        
+        if (ready) {
+            finish(job);
+        }
+        pump();
+    }
+    
+    private void finish(Job job) {
+        synchronized (this) {
+            if (job.ready || job.cancelled) {
+                return;
+            }
+            // The rest of the area is left to load normally as the distance goes up
+            job.ready = true;
+        }
+        
+        jobs.remove(job.player, job);
+        plugin.getPlatformScheduler().dispatch(job.player, (player) -> {
+            job.onReady.run();
+            release(job);
+        }, () -> {
+            release(job);
+        });
+    }
+    
+    private void release(Job job) {
+        List<Request> tickets;
+        synchronized (this) {
+            job.released = true;
+            tickets = new ArrayList<>(job.tickets);
+            job.tickets.clear();
+        }
+        
+        for (Request ticket : tickets) {
+            job.plan.world.removePluginChunkTicket(ticket.x, ticket.z, plugin);
+        }
+    }
+    
+    public static final class Plan {
+        
+        private static final Plan NONE = new Plan(null, new ArrayList<>(), false);
+        
+        private final World world;
+        private final List<long[]> chunks;
+        private final boolean mostlyUngenerated;
+        
+        private Plan(World world, List<long[]> chunks, boolean mostlyUngenerated) {
+            this.world = world;
+            this.chunks = chunks;
+            this.mostlyUngenerated = mostlyUngenerated;
+        }
+        
+        public boolean isMostlyUngenerated() {
+            return mostlyUngenerated;
+        }
+    }
+    
+    private static final class Job {
+        
+        private final Player player;
+        private final Plan plan;
+        private final int required;
+        private final int concurrency;
+        private final long deadline;
+        private final Runnable onReady;
+        private volatile boolean cancelled;
+        
+        // Only touched while holding the prewarmer's lock
+        private boolean ready;
+        private boolean released;
+        private int next;
+        private int inFlight;
+        private int loaded;
+        private final List<Request> tickets = new ArrayList<>();
+        
+        private Job(Player player, Plan plan, int required, int concurrency, long deadline, Runnable onReady) {
+            this.player = player;
+            this.plan = plan;
+            this.required = required;
+            this.concurrency = concurrency;
+            this.deadline = deadline;
+            this.onReady = onReady;
+        }
+    }
+    
+    private static final class Request {
+        
+        private final Job job;
+        private final int x;
+        private final int z;
+        
+        private Request(Job job, int x, int z) {
+            this.job = job;
+            this.x = x;
+            this.z = z;
+        }
+    }
+}
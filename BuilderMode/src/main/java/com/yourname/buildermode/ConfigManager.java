@@ -1,126 +1,452 @@
 package com.yourname.buildermode;
 
-import org.bukkit.ChatColor;
+import net.kyori.adventure.text.Component;
 import org.bukkit.World;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.InvalidConfigurationException;
 import org.bukkit.configuration.file.FileConfiguration;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.world.WorldLoadEvent;
+import org.bukkit.event.world.WorldUnloadEvent;
 
-public class ConfigManager {
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+public class ConfigManager implements Listener {
+    
+    private static final Map<String, String> DEFAULT_MESSAGES = new LinkedHashMap<>();
+    
+    static {
+        DEFAULT_MESSAGES.put("no-permission", "&cYou don't have permission to use this command!");
+        DEFAULT_MESSAGES.put("players-only", "&cOnly players can use this command!");
+        DEFAULT_MESSAGES.put("config-reloaded", "&aBuildderMode configuration reloaded!");
+        DEFAULT_MESSAGES.put("reload-failed", "&cFailed to reload the BuilderMode configuration. Check the console for details.");
+        DEFAULT_MESSAGES.put("already-active", "&cBuilderMode is already active!");
+        DEFAULT_MESSAGES.put("on-cooldown", "&cYou must wait {time} seconds before using BuilderMode again!");
+        DEFAULT_MESSAGES.put("activated", "&aBuilderMode activated! Render distance set to {distance} chunks for {duration} seconds.");
+        DEFAULT_MESSAGES.put("not-active", "&cBuilderMode is not currently active!");
+        DEFAULT_MESSAGES.put("disabled-manually", "&eBuilderMode has been disabled manually.");
+        DEFAULT_MESSAGES.put("expired", "&eBuilderMode has expired. Render distance restored.");
+        DEFAULT_MESSAGES.put("info-active", "&aBuilderMode is active! Time remaining: &e{time} seconds");
+        DEFAULT_MESSAGES.put("info-cooldown", "&eBuilderMode is on cooldown. Time remaining: &c{time} seconds");
+        DEFAULT_MESSAGES.put("info-ready", "&aBuilderMode is ready to use!");
+        DEFAULT_MESSAGES.put("info-distance", "&7Render distance: &e{current} &7of &e{target} &7chunks");
+        DEFAULT_MESSAGES.put("info-queued", "&eYou are &6#{position} &ein the BuilderMode queue.");
+        DEFAULT_MESSAGES.put("info-budget", "&7World chunk budget: &e{used}&7/&e{budget} &7chunks in use, &e{queued} &7queued");
+        DEFAULT_MESSAGES.put("queued", "&eToo many players are using BuilderMode in this world. You are &6#{position} &ein the queue and will be activated automatically.");
+        DEFAULT_MESSAGES.put("queue-cancelled", "&eYou have left the BuilderMode queue.");
+        DEFAULT_MESSAGES.put("queue-left", "&eYou have left the BuilderMode queue because you changed worlds.");
+        DEFAULT_MESSAGES.put("queue-empty", "&7No world has active or queued BuilderMode sessions.");
+        DEFAULT_MESSAGES.put("queue-world", "&e{world}&7: &e{used}&7/&e{budget} &7chunks, &e{sessions} &7session(s), &e{queued} &7queued");
+        DEFAULT_MESSAGES.put("queue-players", "&7  Queue: &f{players}");
+        DEFAULT_MESSAGES.put("stats-header", "&6BuilderMode stats");
+        DEFAULT_MESSAGES.put("stats-value", "&7{name}: &e{value}");
+        DEFAULT_MESSAGES.put("stats-timer", "&7{name}: &e{count} &7calls, mean &e{mean}&7, p99 &e{p99}&7, max &e{max}");
+        DEFAULT_MESSAGES.put("invalid-usage", "&cUsage: /buildermode [on|off|info|reload]");
+        DEFAULT_MESSAGES.put("elytra-warning", "&e&lWARNING: &eYou are wearing an elytra! It will be removed if you activate BuilderMode. Use &6/buildermode on &eagain to confirm.");
+        DEFAULT_MESSAGES.put("elytra-removed-inventory", "&eYour elytra has been moved to your inventory.");
+        DEFAULT_MESSAGES.put("elytra-removed-ground", "&eYour elytra has been dropped on the ground (inventory full).");
+        DEFAULT_MESSAGES.put("cannot-ride-entity", "&cYou cannot ride entities while BuilderMode is active (except minecarts)!");
+        DEFAULT_MESSAGES.put("cannot-use-elytra", "&cYou cannot use elytra while BuilderMode is active!");
+        DEFAULT_MESSAGES.put("cannot-equip-elytra", "&cYou cannot equip elytra while BuilderMode is active!");
+        DEFAULT_MESSAGES.put("plugin-disabled", "&cBuilderMode is currently disabled!");
+        DEFAULT_MESSAGES.put("dimension-disabled", "&eBuilderMode has been disabled because you changed dimensions.");
+        DEFAULT_MESSAGES.put("dismounted", "&eYou have been dismounted from your vehicle.");
+        DEFAULT_MESSAGES.put("prewarm-refused", "&cMost of the terrain around you hasn't been generated yet. Explore it first before using BuilderMode here.");
+        DEFAULT_MESSAGES.put("throttled", "&eThe server is under heavy load. Your BuilderMode render distance has been lowered to {distance} chunks.");
+        DEFAULT_MESSAGES.put("unthrottled", "&aServer load has recovered. Your BuilderMode render distance has been raised to {distance} chunks.");
+        DEFAULT_MESSAGES.put("distance-updated", "&eThe BuilderMode render distance has been changed to {distance} chunks.");
+        DEFAULT_MESSAGES.put("duration-updated", "&eThe BuilderMode duration has been changed, your session now ends in &6{time} &eseconds.");
+        DEFAULT_MESSAGES.put("session-resumed", "&aYour BuilderMode session has been restored with &e{time} &aseconds remaining.");
+        DEFAULT_MESSAGES.put("dismounted-check", "&cYou cannot ride entities while BuilderMode is active!");
+        DEFAULT_MESSAGES.put("ledger-header", "&6BuilderMode in the last {hours} hour(s): &e{sessions} &6session(s), &e{chunks} &6chunk-seconds");
+        DEFAULT_MESSAGES.put("ledger-reasons", "&7Ended by expiry &e{expired}&7, manually &e{manual}&7, dimension change &e{dimension}&7, logout &e{logout}&7, shutdown &e{shutdown}");
+        DEFAULT_MESSAGES.put("ledger-world", "&7{world}: &e{sessions} &7session(s), &e{chunks} &7chunk-seconds");
+        DEFAULT_MESSAGES.put("ledger-top", "&7Heaviest users:");
+        DEFAULT_MESSAGES.put("ledger-player", "&7  {player}: &e{sessions} &7session(s), &e{minutes} &7minutes, &e{chunks} &7chunk-seconds");
+        DEFAULT_MESSAGES.put("ledger-failed", "&cFailed to read the session ledger. Check the console for details.");
+    }
     
     private final BuilderMode plugin;
-    private FileConfiguration config;
+    // The settings and the table of loaded worlds resolved against them, replaced as a whole
+    // on reload or when a world loads, so readers never see one without the other
+    private volatile Snapshot snapshot;
     
     public ConfigManager(BuilderMode plugin) {
         this.plugin = plugin;
-        this.config = plugin.getConfig();
+        this.snapshot = new Snapshot(new Settings(plugin.getConfig()), Collections.emptyMap());
+        
+        for (World world : plugin.getServer().getWorlds()) {
+            putWorld(world);
+        }
     }
     
-    public void reload() {
-        plugin.reloadConfig();
-        this.config = plugin.getConfig();
+    // Parse config.yml off the main thread and publish it with a single swap. Completes
+    // with what changed, so callers only re-arm the tasks and sessions that are affected.
+    public CompletableFuture<Changes> reload() {
+        CompletableFuture<Changes> future = new CompletableFuture<>();
+        
+        plugin.getPlatformScheduler().runAsync(() -> {
+            try {
+                Settings next = new Settings(loadFromDisk());
+                Settings previous = publish(next);
+                future.complete(new Changes(previous, next));
+            } catch (Throwable t) {
+                future.completeExceptionally(t);
+            }
+        });
+        
+        return future;
+    }
+    
+    // Throws on a malformed file, loadConfiguration would log it and hand back an empty config
+    private FileConfiguration loadFromDisk() throws IOException, InvalidConfigurationException {
+        YamlConfiguration config = new YamlConfiguration();
+        config.load(new File(plugin.getDataFolder(), "config.yml"));
+        
+        InputStream defaults = plugin.getResource("config.yml");
+        if (defaults != null) {
+            config.setDefaults(YamlConfiguration.loadConfiguration(new InputStreamReader(defaults, StandardCharsets.UTF_8)));
+        }
+        
+        return config;
+    }
+    
+    public EventCategorySettings getEventCategorySettings(EventCategory category) {
+        return snapshot.settings.eventCategories.get(category);
+    }
+    
+    public boolean isEventLogToFile() {
+        return snapshot.settings.eventLogToFile;
+    }
+    
+    // In bytes
+    public long getEventLogMaxFileSize() {
+        return snapshot.settings.eventLogMaxFileSize;
+    }
+    
+    public int getEventLogMaxFiles() {
+        return snapshot.settings.eventLogMaxFiles;
+    }
+    
+    // Only read when the plugin starts
+    public int getEventLogBufferSize() {
+        return snapshot.settings.eventLogBufferSize;
+    }
+    
+    public DimensionSettings getDimensionSettings(World.Environment environment) {
+        return snapshot.settings.dimensions.get(environment);
+    }
+    
+    // The world's own settings if it has any, otherwise its dimension's
+    public DimensionSettings getWorldSettings(World world) {
+        return getWorldSettings(world.getUID(), world.getEnvironment());
+    }
+    
+    public DimensionSettings getWorldSettings(UUID worldId, World.Environment environment) {
+        Snapshot current = snapshot;
+        WorldEntry entry = current.worlds.get(worldId);
+        return entry != null ? entry.settings : current.settings.dimensions.get(environment);
+    }
+    
+    public Collection<DimensionSettings> getLoadedWorldSettings() {
+        Collection<WorldEntry> entries = snapshot.worlds.values();
+        List<DimensionSettings> loaded = new ArrayList<>(entries.size());
+        for (WorldEntry entry : entries) {
+            loaded.add(entry.settings);
+        }
+        return loaded;
+    }
+    
+    public int getRenderDistance(World world) {
+        return getWorldSettings(world).getRenderDistance();
+    }
+    
+    public int getDuration(World world) {
+        return getWorldSettings(world).getDuration();
+    }
+    
+    public DistanceMode getDistanceMode(World world) {
+        return getWorldSettings(world).getDistanceMode();
+    }
+    
+    public long getCooldown(World world) {
+        return getWorldSettings(world).getCooldown();
     }
     
     public int getRenderDistance(World.Environment environment) {
-        String path = getEnvironmentPath(environment) + ".render-distance";
-        return config.getInt(path, 32);
+        return snapshot.settings.dimensions.get(environment).getRenderDistance();
     }
     
     public int getDuration(World.Environment environment) {
-        String path = getEnvironmentPath(environment) + ".duration";
-        return config.getInt(path, 60);
+        return snapshot.settings.dimensions.get(environment).getDuration();
+    }
+    
+    public DistanceMode getDistanceMode(World.Environment environment) {
+        return snapshot.settings.dimensions.get(environment).getDistanceMode();
     }
     
     public long getCooldown(World.Environment environment) {
-        String path = getEnvironmentPath(environment) + ".cooldown";
-        return config.getLong(path, 300) * 1000; // Convert to milliseconds
+        return snapshot.settings.dimensions.get(environment).getCooldown();
+    }
+    
+    // Longest cooldown of any dimension or world, after which a cooldown can be forgotten
+    public long getMaxCooldown() {
+        return snapshot.settings.maxCooldown;
     }
     
     public int getDefaultRenderDistance() {
-        return config.getInt("default-render-distance", 10);
+        return snapshot.settings.defaultRenderDistance;
     }
     
     public boolean isPluginEnabled() {
-        return config.getBoolean("enabled", true);
+        return snapshot.settings.enabled;
     }
     
     public long getSafetyCheckInterval() {
-        return config.getLong("safety-check-interval", 300);
+        return snapshot.settings.safetyCheckInterval;
+    }
+    
+    public int getSafetyCheckBudget() {
+        return snapshot.settings.safetyCheckBudget;
+    }
+    
+    // 0 sweeps every player each time
+    public int getSafetyCheckSweepSize() {
+        return snapshot.settings.safetyCheckSweepSize;
     }
     
     public boolean isVerboseEnabled() {
-        return config.getBoolean("verbose", false);
+        return snapshot.settings.verbose;
     }
     
     public boolean isElytraDisabled() {
-        return config.getBoolean("restrictions.disable-elytra", true);
+        return snapshot.settings.elytraDisabled;
     }
     
     public boolean isEntityRidingDisabled() {
-        return config.getBoolean("restrictions.disable-entity-riding", true);
+        return snapshot.settings.entityRidingDisabled;
     }
     
     public long getMountCheckInterval() {
-        return config.getLong("restrictions.mount-check-interval", 5);
-    }
-    
-    public String getMessage(String key) {
-        String message = config.getString("messages." + key, getDefaultMessage(key));
-        return ChatColor.translateAlternateColorCodes('&', message);
-    }
-    
-    private String getDefaultMessage(String key) {
-        switch (key) {
-            case "no-permission":
-                return "&cYou don't have permission to use this command!";
-            case "players-only":
-                return "&cOnly players can use this command!";
-            case "config-reloaded":
-                return "&aBuildderMode configuration reloaded!";
-            case "already-active":
-                return "&cBuilderMode is already active!";
-            case "on-cooldown":
-                return "&cYou must wait {time} seconds before using BuilderMode again!";
-            case "activated":
-                return "&aBuilderMode activated! Render distance set to {distance} chunks for {duration} seconds.";
-            case "not-active":
-                return "&cBuilderMode is not currently active!";
-            case "disabled-manually":
-                return "&eBuilderMode has been disabled manually.";
-            case "expired":
-                return "&eBuilderMode has expired. Render distance restored.";
-            case "info-active":
-                return "&aBuilderMode is active! Time remaining: &e{time} seconds";
-            case "info-cooldown":
-                return "&eBuilderMode is on cooldown. Time remaining: &c{time} seconds";
-            case "info-ready":
-                return "&aBuilderMode is ready to use!";
-            case "invalid-usage":
-                return "&cUsage: /buildermode [on|off|info|reload]";
-            case "elytra-warning":
-                return "&e&lWARNING: &eYou are wearing an elytra! It will be removed if you activate BuilderMode. Use &6/buildermode on &eagain to confirm.";
-            case "elytra-removed-inventory":
-                return "&eYour elytra has been moved to your inventory.";
-            case "elytra-removed-ground":
-                return "&eYour elytra has been dropped on the ground (inventory full).";
-            case "cannot-ride-entity":
-                return "&cYou cannot ride entities while BuilderMode is active (except minecarts)!";
-            case "cannot-use-elytra":
-                return "&cYou cannot use elytra while BuilderMode is active!";
-            case "cannot-equip-elytra":
-                return "&cYou cannot equip elytra while BuilderMode is active!";
-            case "plugin-disabled":
-                return "&cBuilderMode is currently disabled!";
-            case "dimension-disabled":
-                return "&eBuilderMode has been disabled because you changed dimensions.";
-            case "dismounted":
-                return "&eYou have been dismounted from your vehicle.";
-            case "dismounted-check":
-                return "&cYou cannot ride entities while BuilderMode is active!";
-            default:
-                return "&cUnknown message key: " + key;
+        return snapshot.settings.mountCheckInterval;
+    }
+    
+    public long getElytraReconcileInterval() {
+        return snapshot.settings.elytraReconcileInterval;
+    }
+    
+    public boolean isBudgetEnabled() {
+        return snapshot.settings.budgetEnabled;
+    }
+    
+    public long getBudgetChunksPerWorld() {
+        return snapshot.settings.budgetChunksPerWorld;
+    }
+    
+    public boolean isGovernorEnabled() {
+        return snapshot.settings.governorEnabled;
+    }
+    
+    public long getGovernorCheckInterval() {
+        return snapshot.settings.governorCheckInterval;
+    }
+    
+    public double getGovernorThrottleMspt() {
+        return snapshot.settings.governorThrottleMspt;
+    }
+    
+    public double getGovernorRecoverMspt() {
+        return snapshot.settings.governorRecoverMspt;
+    }
+    
+    public double getGovernorMinTps() {
+        return snapshot.settings.governorMinTps;
+    }
+    
+    public int getGovernorRecoverChecks() {
+        return snapshot.settings.governorRecoverChecks;
+    }
+    
+    public int getGovernorStep() {
+        return snapshot.settings.governorStep;
+    }
+    
+    public int getGovernorMinDistance() {
+        return snapshot.settings.governorMinDistance;
+    }
+    
+    public boolean isPrewarmEnabled() {
+        return snapshot.settings.prewarmEnabled;
+    }
+    
+    public int getPrewarmMaxConcurrent() {
+        return snapshot.settings.prewarmMaxConcurrent;
+    }
+    
+    public double getPrewarmReadyFraction() {
+        return snapshot.settings.prewarmReadyFraction;
+    }
+    
+    public long getPrewarmTimeout() {
+        return snapshot.settings.prewarmTimeout;
+    }
+    
+    public double getPrewarmUngeneratedThreshold() {
+        return snapshot.settings.prewarmUngeneratedThreshold;
+    }
+    
+    public boolean isPrewarmRefuseUngenerated() {
+        return snapshot.settings.prewarmRefuseUngenerated;
+    }
+    
+    public int getPrewarmSlowConcurrency() {
+        return snapshot.settings.prewarmSlowConcurrency;
+    }
+    
+    public boolean isRampEnabled() {
+        return snapshot.settings.rampEnabled;
+    }
+    
+    public long getRampStepInterval() {
+        return snapshot.settings.rampStepInterval;
+    }
+    
+    public boolean isPersistenceEnabled() {
+        return snapshot.settings.persistenceEnabled;
+    }
+    
+    public long getPersistenceFlushInterval() {
+        return snapshot.settings.persistenceFlushInterval;
+    }
+    
+    public int getPersistenceCompactThreshold() {
+        return snapshot.settings.persistenceCompactThreshold;
+    }
+    
+    public long getPersistenceResumeWindow() {
+        return snapshot.settings.persistenceResumeWindow;
+    }
+    
+    // Only read when the plugin starts
+    public boolean isJdbcStorage() {
+        return snapshot.settings.jdbcStorage;
+    }
+    
+    public String getStorageUrl() {
+        return snapshot.settings.storageUrl;
+    }
+    
+    public String getStorageUsername() {
+        return snapshot.settings.storageUsername;
+    }
+    
+    public String getStoragePassword() {
+        return snapshot.settings.storagePassword;
+    }
+    
+    public String getStorageServerId() {
+        return snapshot.settings.storageServerId;
+    }
+    
+    // In milliseconds
+    public long getStorageFlushInterval() {
+        return snapshot.settings.storageFlushInterval;
+    }
+    
+    // In milliseconds
+    public long getStorageCacheTtl() {
+        return snapshot.settings.storageCacheTtl;
+    }
+    
+    // Read whenever a listener is registered
+    public boolean isListenerTimingEnabled() {
+        return snapshot.settings.listenerTiming;
+    }
+    
+    public boolean isLedgerEnabled() {
+        return snapshot.settings.ledgerEnabled;
+    }
+    
+    // In milliseconds
+    public long getLedgerFlushInterval() {
+        return snapshot.settings.ledgerFlushInterval;
+    }
+    
+    // In milliseconds
+    public long getLedgerRetention() {
+        return snapshot.settings.ledgerRetention;
+    }
+    
+    public Component getMessage(String key) {
+        return getTemplate(key).render();
+    }
+    
+    // Slots are numbered by where the placeholders appear in the default message
+    public MessageTemplate getTemplate(String key) {
+        MessageTemplate template = snapshot.settings.messages.get(key);
+        if (template != null) {
+            return template;
+        }
+        
+        return MessageTemplate.compile("&cUnknown message key: " + key, Collections.emptyList());
+    }
+    
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onWorldLoad(WorldLoadEvent event) {
+        putWorld(event.getWorld());
+    }
+    
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onWorldUnload(WorldUnloadEvent event) {
+        removeWorld(event.getWorld().getUID());
+    }
+    
+    // Worlds come and go rarely, so the table is copied on every change
+    private synchronized void putWorld(World world) {
+        Snapshot current = snapshot;
+        Map<UUID, WorldEntry> table = new HashMap<>(current.worlds);
+        table.put(world.getUID(), new WorldEntry(world.getName(), world.getEnvironment(), current.settings));
+        snapshot = new Snapshot(current.settings, table);
+    }
+    
+    private synchronized void removeWorld(UUID worldId) {
+        Snapshot current = snapshot;
+        Map<UUID, WorldEntry> table = new HashMap<>(current.worlds);
+        table.remove(worldId);
+        snapshot = new Snapshot(current.settings, table);
+    }
+    
+    // Resolves every loaded world against the new settings and swaps both in at once.
+    // Returns the settings that were replaced.
+    private synchronized Settings publish(Settings next) {
+        Snapshot current = snapshot;
+        Map<UUID, WorldEntry> table = new HashMap<>();
+        for (Map.Entry<UUID, WorldEntry> entry : current.worlds.entrySet()) {
+            WorldEntry world = entry.getValue();
+            table.put(entry.getKey(), new WorldEntry(world.name, world.environment, next));
         }
+        snapshot = new Snapshot(next, table);
+        return current.settings;
     }
     
-    private String getEnvironmentPath(World.Environment environment) {
+    private static String getEnvironmentPath(World.Environment environment) {
         switch (environment) {
             case NETHER:
                 return "dimensions.nether";
@@ -130,4 +456,351 @@ public class ConfigManager {
                 return "dimensions.overworld";
         }
     }
+    
+    public static final class DimensionSettings {
+        
+        private static final String[] WORLD_KEYS = {"render-distance", "duration", "cooldown", "send-distance-only"};
+        
+        private final int renderDistance;
+        private final int duration;
+        private final long cooldown;
+        private final DistanceMode distanceMode;
+        
+        private DimensionSettings(ConfigurationSection config, String path) {
+            this.renderDistance = config.getInt(path + ".render-distance", 32);
+            this.duration = config.getInt(path + ".duration", 60);
+            this.cooldown = config.getLong(path + ".cooldown", 300) * 1000; // Convert to milliseconds
+            this.distanceMode = config.getBoolean(path + ".send-distance-only", false) ? DistanceMode.SEND : DistanceMode.VIEW;
+        }
+        
+        // A world's settings, read from its own section since its name may hold a '.'.
+        // Anything it doesn't set is taken from its dimension.
+        private DimensionSettings(ConfigurationSection world, DimensionSettings parent) {
+            this.renderDistance = world.getInt("render-distance", parent.renderDistance);
+            this.duration = world.getInt("duration", parent.duration);
+            this.cooldown = world.getLong("cooldown", parent.cooldown / 1000) * 1000; // Convert to milliseconds
+            this.distanceMode = world.getBoolean("send-distance-only", parent.distanceMode == DistanceMode.SEND) ? DistanceMode.SEND : DistanceMode.VIEW;
+        }
+        
+        private static boolean isWorldSection(ConfigurationSection section) {
+            for (String key : WORLD_KEYS) {
+                if (section.isSet(key)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        
+        public int getRenderDistance() {
+            return renderDistance;
+        }
+        
+        public int getDuration() {
+            return duration;
+        }
+        
+        public long getCooldown() {
+            return cooldown;
+        }
+        
+        public DistanceMode getDistanceMode() {
+            return distanceMode;
+        }
+    }
+    
+    // The difference between two loads of config.yml, for the settings that are only
+    // applied when something starts, e.g. a repeating task or a session
+    public static final class Changes {
+        
+        private final Settings previous;
+        private final Settings next;
+        private final boolean sweepIntervalsChanged;
+        private final boolean flushIntervalChanged;
+        private final boolean sessionsAffected;
+        
+        private Changes(Settings previous, Settings next) {
+            this.previous = previous;
+            this.next = next;
+            this.sweepIntervalsChanged = previous.mountCheckInterval != next.mountCheckInterval
+                || previous.elytraReconcileInterval != next.elytraReconcileInterval
+                || previous.safetyCheckInterval != next.safetyCheckInterval;
+            this.flushIntervalChanged = previous.persistenceFlushInterval != next.persistenceFlushInterval
+                || previous.storageFlushInterval != next.storageFlushInterval
+                || previous.ledgerFlushInterval != next.ledgerFlushInterval;
+            
+            // With world overrides on either side every session has to be looked at
+            boolean affected = !previous.worlds.isEmpty() || !next.worlds.isEmpty();
+            for (World.Environment environment : World.Environment.values()) {
+                DimensionSettings before = previous.dimensions.get(environment);
+                DimensionSettings after = next.dimensions.get(environment);
+                if (before.getRenderDistance() != after.getRenderDistance() || before.getDuration() != after.getDuration()) {
+                    affected = true;
+                }
+            }
+            this.sessionsAffected = affected;
+        }
+        
+        public boolean areSweepIntervalsChanged() {
+            return sweepIntervalsChanged;
+        }
+        
+        public boolean isFlushIntervalChanged() {
+            return flushIntervalChanged;
+        }
+        
+        public boolean isDistanceChanged(World world) {
+            return previous.resolve(world).getRenderDistance() != next.resolve(world).getRenderDistance();
+        }
+        
+        // In seconds, how much longer sessions in this world now last
+        public int getDurationDelta(World world) {
+            return next.resolve(world).getDuration() - previous.resolve(world).getDuration();
+        }
+        
+        public boolean affectsSessions() {
+            return sessionsAffected;
+        }
+    }
+    
+    public static final class EventCategorySettings {
+        
+        private final boolean enabled;
+        private final int sample;
+        private final int rateLimit;
+        
+        private EventCategorySettings(ConfigurationSection config, String path, boolean enabledByDefault) {
+            this.enabled = config.getBoolean(path + ".enabled", enabledByDefault);
+            this.sample = Math.max(1, config.getInt(path + ".sample", 1));
+            this.rateLimit = Math.max(0, config.getInt(path + ".rate-limit", 20));
+        }
+        
+        public boolean isEnabled() {
+            return enabled;
+        }
+        
+        // Keep one record in this many
+        public int getSample() {
+            return sample;
+        }
+        
+        // Records per second, 0 for no limit
+        public int getRateLimit() {
+            return rateLimit;
+        }
+    }
+    
+    // Immutable view of config.yml, compiled once per load
+    private static final class Settings {
+        
+        private final boolean enabled;
+        private final boolean verbose;
+        private final int defaultRenderDistance;
+        private final long safetyCheckInterval;
+        private final int safetyCheckBudget;
+        private final int safetyCheckSweepSize;
+        private final boolean elytraDisabled;
+        private final boolean entityRidingDisabled;
+        private final long mountCheckInterval;
+        private final long elytraReconcileInterval;
+        private final boolean budgetEnabled;
+        private final long budgetChunksPerWorld;
+        private final boolean governorEnabled;
+        private final long governorCheckInterval;
+        private final double governorThrottleMspt;
+        private final double governorRecoverMspt;
+        private final double governorMinTps;
+        private final int governorRecoverChecks;
+        private final int governorStep;
+        private final int governorMinDistance;
+        private final boolean prewarmEnabled;
+        private final int prewarmMaxConcurrent;
+        private final double prewarmReadyFraction;
+        private final long prewarmTimeout;
+        private final double prewarmUngeneratedThreshold;
+        private final boolean prewarmRefuseUngenerated;
+        private final int prewarmSlowConcurrency;
+        private final boolean rampEnabled;
+        private final long rampStepInterval;
+        private final boolean persistenceEnabled;
+        private final long persistenceFlushInterval;
+        private final int persistenceCompactThreshold;
+        private final long persistenceResumeWindow;
+        private final boolean jdbcStorage;
+        private final String storageUrl;
+        private final String storageUsername;
+        private final String storagePassword;
+        private final String storageServerId;
+        private final long storageFlushInterval;
+        private final long storageCacheTtl;
+        private final boolean listenerTiming;
+        private final boolean ledgerEnabled;
+        private final long ledgerFlushInterval;
+        private final long ledgerRetention;
+        private final boolean eventLogToFile;
+        private final long eventLogMaxFileSize;
+        private final int eventLogMaxFiles;
+        private final int eventLogBufferSize;
+        private final Map<EventCategory, EventCategorySettings> eventCategories;
+        private final Map<World.Environment, DimensionSettings> dimensions;
+        // By world name, resolved for each dimension since a world's dimension is only known once it loads
+        private final Map<String, Map<World.Environment, DimensionSettings>> worlds;
+        private final long maxCooldown;
+        private final Map<String, MessageTemplate> messages;
+        
+        private Settings(FileConfiguration config) {
+            this.enabled = config.getBoolean("enabled", true);
+            this.verbose = config.getBoolean("verbose", false);
+            this.defaultRenderDistance = config.getInt("default-render-distance", 10);
+            this.safetyCheckInterval = config.getLong("safety-check-interval", 300);
+            this.safetyCheckBudget = Math.max(1, config.getInt("safety-check-budget", 25));
+            this.safetyCheckSweepSize = Math.max(0, config.getInt("safety-check-sweep-size", 100));
+            this.elytraDisabled = config.getBoolean("restrictions.disable-elytra", true);
+            this.entityRidingDisabled = config.getBoolean("restrictions.disable-entity-riding", true);
+            this.mountCheckInterval = config.getLong("restrictions.mount-check-interval", 5);
+            this.elytraReconcileInterval = config.getLong("restrictions.elytra-reconcile-interval", 30);
+            
+            this.budgetEnabled = config.getBoolean("budget.enabled", false);
+            this.budgetChunksPerWorld = Math.max(1L, config.getLong("budget.chunks-per-world", 12000));
+            
+            this.governorEnabled = config.getBoolean("load-governor.enabled", false);
+            this.governorCheckInterval = Math.max(1L, config.getLong("load-governor.check-interval", 5)) * 20; // Convert to ticks
+            this.governorThrottleMspt = config.getDouble("load-governor.throttle-mspt", 45.0);
+            // Recovering needs a clear margin below the throttle threshold
+            this.governorRecoverMspt = Math.min(governorThrottleMspt, config.getDouble("load-governor.recover-mspt", 35.0));
+            this.governorMinTps = config.getDouble("load-governor.min-tps", 18.0);
+            this.governorRecoverChecks = Math.max(1, config.getInt("load-governor.recover-checks", 3));
+            this.governorStep = Math.max(1, config.getInt("load-governor.step", 2));
+            this.governorMinDistance = Math.max(2, config.getInt("load-governor.min-distance", 8));
+            
+            this.prewarmEnabled = config.getBoolean("prewarm.enabled", false);
+            this.prewarmMaxConcurrent = Math.max(1, config.getInt("prewarm.max-concurrent", 16));
+            this.prewarmReadyFraction = Math.max(0.0, Math.min(1.0, config.getDouble("prewarm.ready-fraction", 0.8)));
+            this.prewarmTimeout = Math.max(1L, config.getLong("prewarm.timeout", 30)) * 20; // Convert to ticks
+            this.prewarmUngeneratedThreshold = config.getDouble("prewarm.ungenerated-threshold", 0.5);
+            this.prewarmRefuseUngenerated = config.getString("prewarm.ungenerated-policy", "slow").equalsIgnoreCase("refuse");
+            this.prewarmSlowConcurrency = Math.max(1, config.getInt("prewarm.slow-concurrency", 2));
+            
+            this.rampEnabled = config.getBoolean("ramp.enabled", false);
+            this.rampStepInterval = Math.max(1L, config.getLong("ramp.step-interval", 10));
+            
+            this.persistenceEnabled = config.getBoolean("persistence.enabled", true);
+            this.persistenceFlushInterval = Math.max(1L, config.getLong("persistence.flush-interval", 5)) * 1000; // Convert to milliseconds
+            this.persistenceCompactThreshold = Math.max(100, config.getInt("persistence.compact-threshold", 10000));
+            this.persistenceResumeWindow = config.getLong("persistence.resume-window", 600) * 1000; // Convert to milliseconds
+            
+            this.jdbcStorage = config.getString("storage.type", "local").equalsIgnoreCase("jdbc");
+            this.storageUrl = config.getString("storage.url", "");
+            this.storageUsername = config.getString("storage.username", "");
+            this.storagePassword = config.getString("storage.password", "");
+            this.storageServerId = config.getString("storage.server-id", "");
+            this.storageFlushInterval = Math.max(50L, config.getLong("storage.flush-interval", 1000));
+            this.storageCacheTtl = Math.max(0L, config.getLong("storage.cache-ttl", 5)) * 1000; // Convert to milliseconds
+            
+            this.listenerTiming = config.getBoolean("metrics.time-listeners", false);
+            
+            this.ledgerEnabled = config.getBoolean("ledger.enabled", true);
+            this.ledgerFlushInterval = Math.max(1L, config.getLong("ledger.flush-interval", 10)) * 1000; // Convert to milliseconds
+            this.ledgerRetention = Math.max(1L, config.getLong("ledger.retention", 168)) * 3600 * 1000; // Convert to milliseconds
+            
+            this.eventLogToFile = config.getString("event-log.output", "console").equalsIgnoreCase("file");
+            this.eventLogMaxFileSize = Math.max(1L, config.getLong("event-log.max-file-size", 10240)) * 1024; // Convert to bytes
+            this.eventLogMaxFiles = Math.max(1, config.getInt("event-log.max-files", 5));
+            this.eventLogBufferSize = Math.max(64, config.getInt("event-log.buffer-size", 8192));
+            
+            EnumMap<EventCategory, EventCategorySettings> eventCategories = new EnumMap<>(EventCategory.class);
+            for (EventCategory category : EventCategory.values()) {
+                // Debug categories follow verbose unless they are switched on or off themselves
+                boolean enabledByDefault = !category.isDebug() || verbose;
+                eventCategories.put(category, new EventCategorySettings(config, "event-log.categories." + category.getKey(), enabledByDefault));
+            }
+            this.eventCategories = eventCategories;
+            
+            EnumMap<World.Environment, DimensionSettings> dimensions = new EnumMap<>(World.Environment.class);
+            long maxCooldown = 0;
+            for (World.Environment environment : World.Environment.values()) {
+                DimensionSettings dimension = new DimensionSettings(config, getEnvironmentPath(environment));
+                dimensions.put(environment, dimension);
+                maxCooldown = Math.max(maxCooldown, dimension.getCooldown());
+            }
+            this.dimensions = dimensions;
+            
+            Map<String, ConfigurationSection> worldSections = new HashMap<>();
+            ConfigurationSection worldsSection = config.getConfigurationSection("worlds");
+            if (worldsSection != null) {
+                collectWorlds(worldsSection, "", worldSections);
+            }
+            
+            Map<String, Map<World.Environment, DimensionSettings>> worlds = new HashMap<>();
+            for (Map.Entry<String, ConfigurationSection> entry : worldSections.entrySet()) {
+                EnumMap<World.Environment, DimensionSettings> resolved = new EnumMap<>(World.Environment.class);
+                for (World.Environment environment : World.Environment.values()) {
+                    DimensionSettings world = new DimensionSettings(entry.getValue(), dimensions.get(environment));
+                    resolved.put(environment, world);
+                    maxCooldown = Math.max(maxCooldown, world.getCooldown());
+                }
+                worlds.put(entry.getKey(), resolved);
+            }
+            this.worlds = worlds;
+            this.maxCooldown = maxCooldown;
+            
+            Map<String, MessageTemplate> messages = new HashMap<>();
+            for (Map.Entry<String, String> entry : DEFAULT_MESSAGES.entrySet()) {
+                String message = config.getString("messages." + entry.getKey(), entry.getValue());
+                messages.put(entry.getKey(), MessageTemplate.compile(message, MessageTemplate.placeholders(entry.getValue())));
+            }
+            this.messages = Collections.unmodifiableMap(messages);
+        }
+        
+        // Bukkit splits keys on '.', so a world named "build.flat" arrives as a section "flat"
+        // inside "build". A section that sets any world key is a world, its children may be
+        // further worlds whose names continue its own.
+        private static void collectWorlds(ConfigurationSection section, String prefix, Map<String, ConfigurationSection> worlds) {
+            for (String key : section.getKeys(false)) {
+                ConfigurationSection child = section.getConfigurationSection(key);
+                if (child == null) {
+                    continue;
+                }
+                
+                String name = prefix + key;
+                if (DimensionSettings.isWorldSection(child)) {
+                    worlds.put(name, child);
+                }
+                collectWorlds(child, name + ".", worlds);
+            }
+        }
+        
+        private DimensionSettings resolve(World world) {
+            return resolve(world.getName(), world.getEnvironment());
+        }
+        
+        private DimensionSettings resolve(String world, World.Environment environment) {
+            Map<World.Environment, DimensionSettings> overrides = worlds.get(world);
+            return (overrides != null ? overrides : dimensions).get(environment);
+        }
+    }
+    
+    private static final class Snapshot {
+        
+        private final Settings settings;
+        // By world UUID, so a lookup is a single probe
+        private final Map<UUID, WorldEntry> worlds;
+        
+        private Snapshot(Settings settings, Map<UUID, WorldEntry> worlds) {
+            this.settings = settings;
+            this.worlds = worlds;
+        }
+    }
+    
+    private static final class WorldEntry {
+        
+        private final String name;
+        private final World.Environment environment;
+        private final DimensionSettings settings;
+        
+        private WorldEntry(String name, World.Environment environment, Settings settings) {
+            this.name = name;
+            this.environment = environment;
+            this.settings = settings.resolve(name, environment);
+        }
+    }
 }
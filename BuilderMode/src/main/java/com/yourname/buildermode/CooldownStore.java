@@ -0,0 +1,19 @@
+package com.yourname.buildermode;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+// Where cooldowns are kept beyond this server's own cooldown table. The table always answers
+// first, whatever a lookup returns later is merged into it, so a command never waits here.
+public interface CooldownStore {
+    
+    // Cooldowns to load into the table when the plugin starts
+    Map<UUID, Long> getCooldowns();
+    
+    // Completes with the last activation time, or 0 if the store has none
+    CompletableFuture<Long> loadCooldown(UUID uuid);
+    
+    // Queued, never blocks
+    void recordCooldown(UUID uuid, long lastUsed);
+}
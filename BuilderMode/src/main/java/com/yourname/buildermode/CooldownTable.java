@@ -0,0 +1,225 @@
+package com.yourname.buildermode;
+
+import java.util.Arrays;
+import java.util.UUID;
+
+// Open-addressing table of the last activation time per player, keyed on the two halves of
+// the UUID so nothing is boxed. A min-heap ordered by activation time lets expired entries be
+// evicted oldest first, so the table only holds players who are still on cooldown.
+public class CooldownTable {
+    
+    private static final int MIN_CAPACITY = 64;
+    
+    // Linear probing, a slot is empty when its time is 0
+    private long[] msbs = new long[MIN_CAPACITY];
+    private long[] lsbs = new long[MIN_CAPACITY];
+    private long[] times = new long[MIN_CAPACITY];
+    private int size;
+    
+    // Binary min-heap on time, may hold stale entries for keys that were refreshed or removed
+    private long[] heapTimes = new long[MIN_CAPACITY];
+    private long[] heapMsbs = new long[MIN_CAPACITY];
+    private long[] heapLsbs = new long[MIN_CAPACITY];
+    private int heapSize;
+    
+    // Returns the last activation time, or 0 if the player is not on cooldown
+    public synchronized long get(UUID uuid) {
+        int slot = find(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits());
+        return slot < 0 ? 0L : times[slot];
+    }
+    
+    public synchronized void put(UUID uuid, long time, long maxCooldown) {
+        evictExpired(time, maxCooldown);
+        
+        long msb = uuid.getMostSignificantBits();
+        long lsb = uuid.getLeastSignificantBits();
+        int mask = times.length - 1;
+        
+        int slot = hash(msb, lsb) & mask;
+        while (times[slot] != 0L) {
+            if (msbs[slot] == msb && lsbs[slot] == lsb) {
+                break;
+            }
+            slot = (slot + 1) & mask;
+        }
+        
+        if (times[slot] == 0L) {
+            msbs[slot] = msb;
+            lsbs[slot] = lsb;
+            size++;
+        }
+        times[slot] = Math.max(1L, time);
+        heapPush(times[slot], msb, lsb);
+        
+        if (size * 2 > times.length) {
+            resize(times.length * 2);
+        }
+    }
+    
+    // Keeps whichever time is newer, for times read from elsewhere that may race a local put
+    public synchronized boolean putIfNewer(UUID uuid, long time, long maxCooldown) {
+        if (time <= get(uuid)) {
+            return false;
+        }
+        put(uuid, time, maxCooldown);
+        return true;
+    }
+    
+    // Drops every entry whose cooldown has run out, oldest first
+    public synchronized int evictExpired(long now, long maxCooldown) {
+        int evicted = 0;
+        
+        while (heapSize > 0 && heapTimes[0] + maxCooldown <= now) {
+            long time = heapTimes[0];
+            long msb = heapMsbs[0];
+            long lsb = heapLsbs[0];
+            heapPop();
+            
+            // Only remove the entry if it wasn't refreshed after this heap entry was added
+            int slot = find(msb, lsb);
+            if (slot >= 0 && times[slot] == time) {
+                removeSlot(slot);
+                evicted++;
+            }
+        }
+        
+        if (times.length > MIN_CAPACITY && size * 8 < times.length) {
+            resize(Math.max(MIN_CAPACITY, Integer.highestOneBit(Math.max(1, size * 4))));
+        }
+        if (heapTimes.length > MIN_CAPACITY && heapSize * 4 < heapTimes.length) {
+            int capacity = Math.max(MIN_CAPACITY, heapTimes.length / 2);
+            heapTimes = Arrays.copyOf(heapTimes, capacity);
+            heapMsbs = Arrays.copyOf(heapMsbs, capacity);
+            heapLsbs = Arrays.copyOf(heapLsbs, capacity);
+        }
+        
+        return evicted;
+    }
+    
+    public synchronized int size() {
+        return size;
+    }
+    
+    private int find(long msb, long lsb) {
+        int mask = times.length - 1;
+        int slot = hash(msb, lsb) & mask;
+        
+        while (times[slot] != 0L) {
+            if (msbs[slot] == msb && lsbs[slot] == lsb) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+    
+    // Backward-shift deletion keeps probe chains intact without tombstones
+    private void removeSlot(int slot) {
+        int mask = times.length - 1;
+        int hole = slot;
+        int next = (hole + 1) & mask;
+        
+        while (times[next] != 0L) {
+            int home = hash(msbs[next], lsbs[next]) & mask;
+            // Move the entry back if the hole lies between its home slot and where it sits now
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                msbs[hole] = msbs[next];
+                lsbs[hole] = lsbs[next];
+                times[hole] = times[next];
+                hole = next;
+            }
+            next = (next + 1) & mask;
+        }
+        
+        times[hole] = 0L;
+        msbs[hole] = 0L;
+        lsbs[hole] = 0L;
+        size--;
+    }
+    
+    private void resize(int capacity) {
+        long[] oldMsbs = msbs;
+        long[] oldLsbs = lsbs;
+        long[] oldTimes = times;
+        
+        msbs = new long[capacity];
+        lsbs = new long[capacity];
+        times = new long[capacity];
+        int mask = capacity - 1;
+        
+        for (int i = 0; i < oldTimes.length; i++) {
+            if (oldTimes[i] == 0L) {
+                continue;
+            }
+            
+            int slot = hash(oldMsbs[i], oldLsbs[i]) & mask;
+            while (times[slot] != 0L) {
+                slot = (slot + 1) & mask;
+            }
+            msbs[slot] = oldMsbs[i];
+            lsbs[slot] = oldLsbs[i];
+            times[slot] = oldTimes[i];
+        }
+    }
+    
+    private void heapPush(long time, long msb, long lsb) {
+        if (heapSize == heapTimes.length) {
+            int capacity = heapTimes.length * 2;
+            heapTimes = Arrays.copyOf(heapTimes, capacity);
+            heapMsbs = Arrays.copyOf(heapMsbs, capacity);
+            heapLsbs = Arrays.copyOf(heapLsbs, capacity);
+        }
+        
+        int i = heapSize++;
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (heapTimes[parent] <= time) {
+                break;
+            }
+            heapTimes[i] = heapTimes[parent];
+            heapMsbs[i] = heapMsbs[parent];
+            heapLsbs[i] = heapLsbs[parent];
+            i = parent;
+        }
+        heapTimes[i] = time;
+        heapMsbs[i] = msb;
+        heapLsbs[i] = lsb;
+    }
+    
+    private void heapPop() {
+        int last = --heapSize;
+        long time = heapTimes[last];
+        long msb = heapMsbs[last];
+        long lsb = heapLsbs[last];
+        
+        int i = 0;
+        int half = heapSize >>> 1;
+        while (i < half) {
+            int child = 2 * i + 1;
+            if (child + 1 < heapSize && heapTimes[child + 1] < heapTimes[child]) {
+                child++;
+            }
+            if (time <= heapTimes[child]) {
+                break;
+            }
+            heapTimes[i] = heapTimes[child];
+            heapMsbs[i] = heapMsbs[child];
+            heapLsbs[i] = heapLsbs[child];
+            i = child;
+        }
+        
+        if (heapSize > 0) {
+            heapTimes[i] = time;
+            heapMsbs[i] = msb;
+            heapLsbs[i] = lsb;
+        }
+    }
+    
+    private static int hash(long msb, long lsb) {
+        long h = msb ^ lsb;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        return (int) h;
+    }
+}
@@ -0,0 +1,34 @@
+package com.yourname.buildermode;
+
+import org.bukkit.entity.Player;
+
+public enum DistanceMode {
+    // Raises the view distance, so the server also holds the extra chunks for the player
+    VIEW {
+        @Override
+        public int get(Player player) {
+            return player.getViewDistance();
+        }
+        
+        @Override
+        public void set(Player player, int distance) {
+            player.setViewDistance(distance);
+        }
+    },
+    // Only raises the distance chunks are sent to the client, view and simulation distance stay put
+    SEND {
+        @Override
+        public int get(Player player) {
+            return player.getSendViewDistance();
+        }
+        
+        @Override
+        public void set(Player player, int distance) {
+            player.setSendViewDistance(distance);
+        }
+    };
+    
+    public abstract int get(Player player);
+    
+    public abstract void set(Player player, int distance);
+}
@@ -0,0 +1,90 @@
+package com.yourname.buildermode;
+
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+
+// Kinds of records in the event log. Each one formats its own record on the writer thread;
+// debug categories are only on by default when verbose is.
+public enum EventCategory {
+    // first and second are the worlds, a is 1 if BuilderMode was active and got disabled
+    TELEPORT("teleport", false) {
+        @Override
+        void format(EventLog.Record record, StringBuilder out) {
+            out.append("Player ").append(playerName(record.getPlayer())).append(" teleported from ")
+                .append(worldName(record.getFirst())).append(" to ").append(worldName(record.getSecond()));
+            out.append(record.getA() != 0 ? ", BuilderMode disabled" : ", BuilderMode not active");
+        }
+    },
+    WORLD_CHANGE("world-change", false) {
+        @Override
+        void format(EventLog.Record record, StringBuilder out) {
+            out.append("Player ").append(playerName(record.getPlayer())).append(" changed world from ")
+                .append(worldName(record.getFirst())).append(" to ").append(worldName(record.getSecond()));
+            out.append(record.getA() != 0 ? ", BuilderMode disabled" : ", BuilderMode not active");
+        }
+    },
+    // first and second are the dimensions the session started in and the player is in now
+    DIMENSION_CHECK("dimension-check", true) {
+        @Override
+        void format(EventLog.Record record, StringBuilder out) {
+            out.append("Detected dimension change for ").append(playerName(record.getPlayer())).append(" from ")
+                .append(record.getFirst()).append(" to ").append(record.getSecond()).append(", BuilderMode disabled");
+        }
+    },
+    // first is the vehicle's entity type
+    MOUNT_BLOCKED("mount-blocked", true) {
+        @Override
+        void format(EventLog.Record record, StringBuilder out) {
+            out.append("Blocked ").append(playerName(record.getPlayer())).append(" from mounting ").append(record.getFirst());
+        }
+    },
+    // first is the vehicle's entity type, if it was known
+    DISMOUNT("dismount", true) {
+        @Override
+        void format(EventLog.Record record, StringBuilder out) {
+            out.append("Mount check: dismounted ").append(playerName(record.getPlayer())).append(" from ")
+                .append(record.getFirst() != null ? record.getFirst() : "unknown");
+        }
+    },
+    LOGOUT("logout", true) {
+        @Override
+        void format(EventLog.Record record, StringBuilder out) {
+            out.append("Player ").append(playerName(record.getPlayer())).append(" disconnected while BuilderMode was active, disabled and cooldown started");
+        }
+    },
+    // a checked, b reset, c changed externally, d ticks the sweep took
+    SAFETY_CHECK("safety-check", true) {
+        @Override
+        void format(EventLog.Record record, StringBuilder out) {
+            out.append("Safety check completed: checked ").append(record.getA()).append(" player(s), reset ").append(record.getB())
+                .append(" player(s), ").append(record.getC()).append(" changed externally, over ").append(record.getD()).append(" tick(s)");
+        }
+    };
+    
+    private final String key;
+    private final boolean debug;
+    
+    EventCategory(String key, boolean debug) {
+        this.key = key;
+        this.debug = debug;
+    }
+    
+    // The name under event-log.categories in config.yml
+    public String getKey() {
+        return key;
+    }
+    
+    public boolean isDebug() {
+        return debug;
+    }
+    
+    abstract void format(EventLog.Record record, StringBuilder out);
+    
+    private static String playerName(Player player) {
+        return player != null ? player.getName() : "unknown";
+    }
+    
+    private static String worldName(Object world) {
+        return world instanceof World ? ((World) world).getName() : String.valueOf(world);
+    }
+}
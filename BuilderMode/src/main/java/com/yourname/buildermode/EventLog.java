@@ -0,0 +1,370 @@
+package com.yourname.buildermode;
+
+import org.bukkit.entity.Player;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+
+// Structured event log. Producers claim a slot in a fixed ring buffer and fill in a few
+// references and numbers, so nothing is formatted or allocated on the tick threads. A
+// background thread turns the records into lines for the console or a rotating file.
+// A full buffer drops new records instead of blocking, and says so once it catches up.
+public class EventLog {
+    
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+    private static final long LOSS_REPORT_INTERVAL = 1000L;
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSS").withZone(ZoneId.systemDefault());
+    
+    private final BuilderMode plugin;
+    private final ConfigManager configManager;
+    private final File file;
+    private final Record[] ring;
+    private final int mask;
+    // The sequence number each slot currently holds, published after the slot is filled
+    private final AtomicLongArray published;
+    private final AtomicLong head = new AtomicLong();
+    // Only advanced by the writer, once a slot has been read and may be reused
+    private volatile long tail;
+    private final AtomicLong dropped = new AtomicLong();
+    
+    private final AtomicLongArray sampleCounters = new AtomicLongArray(EventCategory.values().length);
+    private final AtomicLongArray rateWindows = new AtomicLongArray(EventCategory.values().length);
+    private final AtomicLongArray rateCounts = new AtomicLongArray(EventCategory.values().length);
+    private final AtomicLongArray suppressed = new AtomicLongArray(EventCategory.values().length);
+    
+    private volatile boolean running;
+    private Thread writer;
+    
+    // Only touched by the writer thread
+    private Writer out;
+    private long fileSize;
+    private long lastLossReport;
+    
+    public EventLog(BuilderMode plugin, ConfigManager configManager) {
+        this.plugin = plugin;
+        this.configManager = configManager;
+        this.file = new File(plugin.getDataFolder(), "events.log");
+        
+        int size = configManager.getEventLogBufferSize();
+        int capacity = Integer.highestOneBit(size);
+        if (capacity < size) {
+            capacity <<= 1;
+        }
+        
+        this.ring = new Record[capacity];
+        this.mask = capacity - 1;
+        this.published = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            ring[i] = new Record();
+            published.set(i, -1L);
+        }
+    }
+    
+    public void start() {
+        running = true;
+        writer = plugin.getPlatformScheduler().startThread("BuilderMode-events", this::run);
+    }
+    
+    // Writes what is still buffered and closes the file
+    public void close() {
+        running = false;
+        if (writer == null) {
+            return;
+        }
+        
+        LockSupport.unpark(writer);
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(2));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        writer = null;
+    }
+    
+    // Lets callers skip work that only feeds a record, e.g. an extra lookup
+    public boolean isEnabled(EventCategory category) {
+        return running && configManager.getEventCategorySettings(category).isEnabled();
+    }
+    
+    public void record(EventCategory category, Player player) {
+        record(category, player, null, null, 0L, 0L, 0L, 0L);
+    }
+    
+    public void record(EventCategory category, Player player, Object first) {
+        record(category, player, first, null, 0L, 0L, 0L, 0L);
+    }
+    
+    public void record(EventCategory category, Player player, Object first, Object second, long a) {
+        record(category, player, first, second, a, 0L, 0L, 0L);
+    }
+    
+    public void record(EventCategory category, long a, long b, long c, long d) {
+        record(category, null, null, null, a, b, c, d);
+    }
+    
+    private void record(EventCategory category, Player player, Object first, Object second, long a, long b, long c, long d) {
+        if (!running || !admit(category)) {
+            return;
+        }
+        
+        long sequence;
+        do {
+            sequence = head.get();
+            if (sequence - tail >= ring.length) {
+                dropped.incrementAndGet();
+                return;
+            }
+        } while (!head.compareAndSet(sequence, sequence + 1));
+        
+        int index = (int) (sequence & mask);
+        ring[index].set(category, System.currentTimeMillis(), player, first, second, a, b, c, d);
+        published.set(index, sequence);
+    }
+    
+    // Applies the category's switch, sampling and rate limit
+    private boolean admit(EventCategory category) {
+        ConfigManager.EventCategorySettings settings = configManager.getEventCategorySettings(category);
+        if (!settings.isEnabled()) {
+            return false;
+        }
+        
+        int index = category.ordinal();
+        int sample = settings.getSample();
+        if (sample > 1 && sampleCounters.getAndIncrement(index) % sample != 0) {
+            return false;
+        }
+        
+        int rateLimit = settings.getRateLimit();
+        if (rateLimit > 0) {
+            long second = System.currentTimeMillis() / 1000L;
+            long window = rateWindows.get(index);
+            if (window != second && rateWindows.compareAndSet(index, window, second)) {
+                rateCounts.set(index, 0L);
+            }
+            if (rateCounts.incrementAndGet(index) > rateLimit) {
+                suppressed.incrementAndGet(index);
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    private void run() {
+        StringBuilder line = new StringBuilder(256);
+        while (running) {
+            if (drain(line) == 0) {
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+            }
+        }
+        
+        drain(line);
+        closeFile();
+    }
+    
+    private int drain(StringBuilder line) {
+        boolean toFile = configManager.isEventLogToFile();
+        if (!toFile) {
+            // Output may have been switched back to the console by a reload
+            closeFile();
+        }
+        
+        int count = 0;
+        long next = tail;
+        while (published.get((int) (next & mask)) == next) {
+            Record record = ring[(int) (next & mask)];
+            line.setLength(0);
+            if (toFile) {
+                TIME_FORMAT.formatTo(Instant.ofEpochMilli(record.time), line);
+                line.append(' ');
+            }
+            line.append('[').append(record.category.getKey()).append("] ");
+            record.category.format(record, line);
+            
+            // The slot is free again once it's cleared and the tail has moved past it
+            record.clear();
+            tail = ++next;
+            write(line, toFile);
+            count++;
+        }
+        
+        long now = System.currentTimeMillis();
+        if (now - lastLossReport >= LOSS_REPORT_INTERVAL) {
+            lastLossReport = now;
+            reportLosses(line, toFile);
+        }
+        
+        if (toFile && count > 0) {
+            flush();
+        }
+        return count;
+    }
+    
+    private void reportLosses(StringBuilder line, boolean toFile) {
+        long lost = dropped.getAndSet(0L);
+        if (lost > 0) {
+            line.setLength(0);
+            line.append(lost).append(" record(s) dropped because the event log buffer was full");
+            write(line, toFile);
+        }
+        
+        for (EventCategory category : EventCategory.values()) {
+            long skipped = suppressed.getAndSet(category.ordinal(), 0L);
+            if (skipped > 0) {
+                line.setLength(0);
+                line.append('[').append(category.getKey()).append("] ").append(skipped).append(" record(s) over the rate limit were skipped");
+                write(line, toFile);
+            }
+        }
+    }
+    
+    private void write(StringBuilder line, boolean toFile) {
+        if (!toFile) {
+            plugin.getLogger().info(line.toString());
+            return;
+        }
+        
+        try {
+            if (out == null) {
+                openFile();
+            }
+            line.append('\n');
+            out.append(line);
+            fileSize += line.length();
+            
+            if (fileSize >= configManager.getEventLogMaxFileSize()) {
+                rotate();
+            }
+        } catch (IOException e) {
+            plugin.getLogger().log(Level.WARNING, "Failed to write " + file.getName(), e);
+            closeFile();
+        }
+    }
+    
+    private void openFile() throws IOException {
+        file.getParentFile().mkdirs();
+        out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file, true), StandardCharsets.UTF_8));
+        fileSize = file.length();
+    }
+    
+    // events.log becomes events.log.1, the oldest beyond max-files is deleted
+    private void rotate() throws IOException {
+        closeFile();
+        
+        int maxFiles = configManager.getEventLogMaxFiles();
+        Files.deleteIfExists(new File(file.getPath() + "." + maxFiles).toPath());
+        for (int i = maxFiles - 1; i >= 1; i--) {
+            File older = new File(file.getPath() + "." + i);
+            if (older.exists()) {
+                Files.move(older.toPath(), new File(file.getPath() + "." + (i + 1)).toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        Files.move(file.toPath(), new File(file.getPath() + ".1").toPath(), StandardCopyOption.REPLACE_EXISTING);
+        
+        openFile();
+    }
+    
+    private void flush() {
+        if (out == null) {
+            return;
+        }
+        
+        try {
+            out.flush();
+        } catch (IOException e) {
+            plugin.getLogger().log(Level.WARNING, "Failed to write " + file.getName(), e);
+            closeFile();
+        }
+    }
+    
+    private void closeFile() {
+        if (out == null) {
+            return;
+        }
+        
+        try {
+            out.close();
+        } catch (IOException e) {
+            plugin.getLogger().log(Level.WARNING, "Failed to close " + file.getName(), e);
+        }
+        out = null;
+    }
+    
+    // One slot of the ring buffer, reused for every record that passes through it
+    public static final class Record {
+        
+        private EventCategory category;
+        private long time;
+        private Player player;
+        private Object first;
+        private Object second;
+        private long a;
+        private long b;
+        private long c;
+        private long d;
+        
+        private Record() {
+        }
+        
+        private void set(EventCategory category, long time, Player player, Object first, Object second, long a, long b, long c, long d) {
+            this.category = category;
+            this.time = time;
+            this.player = player;
+            this.first = first;
+            this.second = second;
+            this.a = a;
+            this.b = b;
+            this.c = c;
+            this.d = d;
+        }
+        
+        // Drops the references so a quiet buffer doesn't keep players alive
+        private void clear() {
+            this.player = null;
+            this.first = null;
+            this.second = null;
+        }
+        
+        public Player getPlayer() {
+            return player;
+        }
+        
+        public Object getFirst() {
+            return first;
+        }
+        
+        public Object getSecond() {
+            return second;
+        }
+        
+        public long getA() {
+            return a;
+        }
+        
+        public long getB() {
+            return b;
+        }
+        
+        public long getC() {
+            return c;
+        }
+        
+        public long getD() {
+            return d;
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package com.yourname.buildermode;
+
+import org.bukkit.entity.Player;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.function.Consumer;
+
+// Hashed timing wheel advanced once per server tick. Any thread may schedule or cancel,
+// those requests are queued and applied by the thread that calls advance().
+public class ExpiryWheel {
+    
+    private static final int WHEEL_SIZE = 512; // Must be a power of two
+    
+    private final Bucket[] wheel = new Bucket[WHEEL_SIZE];
+    private final int mask = WHEEL_SIZE - 1;
+    private final Queue<Timeout> pending = new ConcurrentLinkedQueue<>();
+    private final Queue<Timeout> cancelled = new ConcurrentLinkedQueue<>();
+    private final List<Timeout> expired = new ArrayList<>();
+    private final Consumer<Timeout> expiryHandler;
+    private volatile long currentTick;
+    
+    public ExpiryWheel(Consumer<Timeout> expiryHandler) {
+        this.expiryHandler = expiryHandler;
+        for (int i = 0; i < WHEEL_SIZE; i++) {
+            wheel[i] = new Bucket();
+        }
+    }
+    
+    public Timeout schedule(Player player, long delayTicks) {
+        Timeout timeout = new Timeout(this, player, currentTick + Math.max(1L, delayTicks));
+        pending.add(timeout);
+        return timeout;
+    }
+    
+    // Must only be called from one thread, once per tick
+    public void advance() {
+        long tick = currentTick;
+        
+        removeCancelled();
+        transferPending(tick);
+        
+        wheel[(int) (tick & mask)].expire(expired);
+        currentTick = tick + 1;
+        
+        if (expired.isEmpty()) {
+            return;
+        }
+        
+        for (Timeout timeout : expired) {
+            expiryHandler.accept(timeout);
+        }
+        expired.clear();
+    }
+    
+    public long getCurrentTick() {
+        return currentTick;
+    }
+    
+    private void transferPending(long tick) {
+        Timeout timeout;
+        while ((timeout = pending.poll()) != null) {
+            if (timeout.state != Timeout.ST_PENDING) {
+                continue;
+            }
+            
+            // Anything already overdue lands in the bucket that fires this tick
+            long deadline = Math.max(timeout.deadline, tick);
+            timeout.remainingRounds = (deadline - tick) / WHEEL_SIZE;
+            wheel[(int) (deadline & mask)].add(timeout);
+        }
+    }
+    
+    private void removeCancelled() {
+        Timeout timeout;
+        while ((timeout = cancelled.poll()) != null) {
+            if (timeout.bucket != null) {
+                timeout.bucket.remove(timeout);
+            }
+        }
+    }
+    
+    public static final class Timeout {
+        
+        private static final int ST_PENDING = 0;
+        private static final int ST_CANCELLED = 1;
+        private static final int ST_EXPIRED = 2;
+        
+        private static final AtomicIntegerFieldUpdater<Timeout> STATE =
+            AtomicIntegerFieldUpdater.newUpdater(Timeout.class, "state");
+        
+        private final ExpiryWheel wheel;
+        private final Player player;
+        private final long deadline;
+        private volatile int state = ST_PENDING;
+        
+        // Only touched by the advancing thread
+        private long remainingRounds;
+        private Bucket bucket;
+        private Timeout next;
+        private Timeout prev;
+        
+        private Timeout(ExpiryWheel wheel, Player player, long deadline) {
+            this.wheel = wheel;
+            this.player = player;
+            this.deadline = deadline;
+        }
+        
+        public Player getPlayer() {
+            return player;
+        }
+        
+        public boolean cancel() {
+            if (!STATE.compareAndSet(this, ST_PENDING, ST_CANCELLED)) {
+                return false;
+            }
+            
+            wheel.cancelled.add(this);
+            return true;
+        }
+        
+        public boolean isCancelled() {
+            return state == ST_CANCELLED;
+        }
+        
+        private boolean markExpired() {
+            return STATE.compareAndSet(this, ST_PENDING, ST_EXPIRED);
+        }
+    }
+    
+    // Doubly linked so a cancelled timeout can be unlinked in O(1)
+    private static final class Bucket {
+        
+        private Timeout head;
+        private Timeout tail;
+        
+        void add(Timeout timeout) {
+            timeout.bucket = this;
+            if (head == null) {
+                head = tail = timeout;
+            } else {
+                tail.next = timeout;
+                timeout.prev = tail;
+                tail = timeout;
+            }
+        }
+        
+        void expire(List<Timeout> expired) {
+            Timeout timeout = head;
+            while (timeout != null) {
+                Timeout next = timeout.next;
+                
+                if (timeout.remainingRounds <= 0) {
+                    remove(timeout);
+                    if (timeout.markExpired()) {
+                        expired.add(timeout);
+                    }
+                } else {
+                    timeout.remainingRounds--;
+                }
+                
+                timeout = next;
+            }
+        }
+        
+        void remove(Timeout timeout) {
+            Timeout next = timeout.next;
+            
+            if (timeout.prev != null) {
+                timeout.prev.next = next;
+            }
+            if (next != null) {
+                next.prev = timeout.prev;
+            }
+            
+            if (timeout == head) {
+                if (timeout == tail) {
+                    head = tail = null;
+                } else {
+                    head = next;
+                }
+            } else if (timeout == tail) {
+                tail = timeout.prev;
+            }
+            
+            timeout.prev = null;
+            timeout.next = null;
+            timeout.bucket = null;
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.yourname.buildermode;
+
+import org.bukkit.Location;
+import org.bukkit.entity.Entity;
+
+import java.util.function.Consumer;
+
+// Folia: there is no main thread, entities and locations belong to the region they are in
+public class FoliaPlatformScheduler extends AbstractPlatformScheduler {
+    
+    private final BuilderMode plugin;
+    
+    public FoliaPlatformScheduler(BuilderMode plugin) {
+        this.plugin = plugin;
+    }
+    
+    @Override
+    public boolean isFolia() {
+        return true;
+    }
+    
+    @Override
+    public void runGlobal(Runnable task) {
+        plugin.getServer().getGlobalRegionScheduler().execute(plugin, task);
+    }
+    
+    @Override
+    public Task runGlobalTimer(Runnable task, long delayTicks, long periodTicks) {
+        return plugin.getServer().getGlobalRegionScheduler().runAtFixedRate(plugin, (scheduled) -> {
+            task.run();
+        }, delayTicks, periodTicks)::cancel;
+    }
+    
+    @Override
+    public void runAtLocation(Location location, Runnable task) {
+        plugin.getServer().getRegionScheduler().execute(plugin, location, task);
+    }
+    
+    @Override
+    public void runAtEntity(Entity entity, Runnable task, Runnable retired) {
+        entity.getScheduler().run(plugin, (scheduled) -> {
+            task.run();
+        }, retired);
+    }
+    
+    @Override
+    public <T extends Entity> void dispatch(T entity, Consumer<? super T> task, Runnable retired) {
+        entity.getScheduler().run(plugin, (scheduled) -> {
+            task.accept(entity);
+        }, retired);
+    }
+}
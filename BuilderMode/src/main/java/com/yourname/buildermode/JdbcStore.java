@@ -0,0 +1,398 @@
+package com.yourname.buildermode;
+
+import org.bukkit.World;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.logging.Level;
+
+// Cooldowns and sessions in a database that several servers can share, e.g. an SQLite file,
+// H2 or PostgreSQL. Cooldowns are shared by every server, sessions are kept per server id.
+// Writes are coalesced per player and sent in one transaction per flush, lookups go through
+// a short-lived cache and otherwise run on the writer thread, which owns the connection.
+public class JdbcStore implements SessionStore {
+    
+    private static final String CREATE_COOLDOWNS = "CREATE TABLE IF NOT EXISTS buildermode_cooldowns ("
+        + "uuid CHAR(36) NOT NULL PRIMARY KEY, last_used BIGINT NOT NULL)";
+    private static final String CREATE_SESSIONS = "CREATE TABLE IF NOT EXISTS buildermode_sessions ("
+        + "server_id VARCHAR(64) NOT NULL, uuid CHAR(36) NOT NULL, mode VARCHAR(16) NOT NULL, original_distance INT NOT NULL, "
+        + "dimension VARCHAR(16) NOT NULL, expiration_time BIGINT NOT NULL, remaining BIGINT NOT NULL, paused_at BIGINT NOT NULL, "
+        + "world CHAR(36) NOT NULL, PRIMARY KEY (server_id, uuid))";
+    private static final int OPEN_TIMEOUT_SECONDS = 5;
+    
+    private static final String SELECT_COOLDOWN = "SELECT last_used FROM buildermode_cooldowns WHERE uuid = ?";
+    private static final String SELECT_SESSIONS = "SELECT uuid, mode, original_distance, dimension, expiration_time, remaining, paused_at, world "
+        + "FROM buildermode_sessions WHERE server_id = ?";
+    private static final String DELETE_SESSION = "DELETE FROM buildermode_sessions WHERE server_id = ? AND uuid = ?";
+    
+    // SQLite and PostgreSQL share the upsert syntax, H2 has its own
+    private static final String UPSERT_COOLDOWN = "INSERT INTO buildermode_cooldowns (uuid, last_used) VALUES (?, ?) "
+        + "ON CONFLICT (uuid) DO UPDATE SET last_used = excluded.last_used WHERE buildermode_cooldowns.last_used < excluded.last_used";
+    private static final String UPSERT_SESSION = "INSERT INTO buildermode_sessions "
+        + "(server_id, uuid, mode, original_distance, dimension, expiration_time, remaining, paused_at, world) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?) "
+        + "ON CONFLICT (server_id, uuid) DO UPDATE SET mode = excluded.mode, original_distance = excluded.original_distance, "
+        + "dimension = excluded.dimension, expiration_time = excluded.expiration_time, remaining = excluded.remaining, paused_at = excluded.paused_at, "
+        + "world = excluded.world";
+    // Same rule as the upsert, a server flushing an older time must not shorten a cooldown
+    private static final String MERGE_COOLDOWN = "MERGE INTO buildermode_cooldowns t USING (VALUES (CAST(? AS CHAR(36)), CAST(? AS BIGINT))) s (uuid, last_used) "
+        + "ON t.uuid = s.uuid WHEN MATCHED AND t.last_used < s.last_used THEN UPDATE SET last_used = s.last_used "
+        + "WHEN NOT MATCHED THEN INSERT (uuid, last_used) VALUES (s.uuid, s.last_used)";
+    private static final String MERGE_SESSION = "MERGE INTO buildermode_sessions "
+        + "(server_id, uuid, mode, original_distance, dimension, expiration_time, remaining, paused_at, world) KEY (server_id, uuid) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    
+    private final BuilderMode plugin;
+    private final ConfigManager configManager;
+    private final String url;
+    private final String serverId;
+    
+    // Latest cooldown per player waiting for the next flush
+    private final Map<UUID, Long> pendingCooldowns = new ConcurrentHashMap<>();
+    // Players whose session row has to be written or deleted, the row mirrors liveSessions
+    private final Set<UUID> pendingSessions = ConcurrentHashMap.newKeySet();
+    private final Map<UUID, StoredSession> liveSessions = new ConcurrentHashMap<>();
+    private final Map<UUID, CachedCooldown> cache = new ConcurrentHashMap<>();
+    private Map<UUID, StoredSession> restored = Collections.emptyMap();
+    
+    private ScheduledExecutorService executor;
+    private ScheduledFuture<?> flushTask;
+    // Only touched by the writer thread once the store is open
+    private Connection connection;
+    private boolean h2;
+    
+    public JdbcStore(BuilderMode plugin, ConfigManager configManager) {
+        this.plugin = plugin;
+        this.configManager = configManager;
+        
+        String configuredUrl = configManager.getStorageUrl();
+        this.url = configuredUrl.isEmpty() ? "jdbc:sqlite:" + new File(plugin.getDataFolder(), "buildermode.db").getAbsolutePath() : configuredUrl;
+        String configuredId = configManager.getStorageServerId();
+        this.serverId = configuredId.isEmpty() ? "port-" + plugin.getServer().getPort() : configuredId;
+    }
+    
+    // Creates the tables and reads this server's sessions on the writer thread, waiting a
+    // bounded time so a slow database can't hold up the enable. If the database isn't there
+    // yet, writes are queued and every flush tries to connect again.
+    @Override
+    public void open() {
+        plugin.getDataFolder().mkdirs();
+        executor = plugin.getPlatformScheduler().newWorker("BuilderMode-storage");
+        
+        Future<Map<UUID, StoredSession>> load = executor.submit(() -> {
+            connect();
+            return readSessions();
+        });
+        try {
+            restored = load.get(OPEN_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            liveSessions.putAll(restored);
+            if (configManager.isVerboseEnabled()) {
+                plugin.getLogger().info("Loaded " + restored.size() + " session(s) for " + serverId + " from the database");
+            }
+        } catch (ExecutionException e) {
+            plugin.getLogger().log(Level.WARNING, "Failed to open the BuilderMode database, retrying on the next flush", e.getCause());
+            executor.execute(this::closeConnection);
+        } catch (TimeoutException e) {
+            load.cancel(true);
+            plugin.getLogger().warning("The BuilderMode database didn't answer within " + OPEN_TIMEOUT_SECONDS
+                + " seconds, sessions from before the restart are not resumed");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        
+        scheduleFlush();
+    }
+    
+    private void scheduleFlush() {
+        if (flushTask != null) {
+            flushTask.cancel(false);
+        }
+        long interval = configManager.getStorageFlushInterval();
+        flushTask = executor.scheduleWithFixedDelay(this::flush, interval, interval, TimeUnit.MILLISECONDS);
+    }
+    
+    @Override
+    public void rescheduleFlush() {
+        if (executor != null) {
+            scheduleFlush();
+        }
+    }
+    
+    @Override
+    public void close() {
+        if (executor == null) {
+            return;
+        }
+        
+        // The final flush runs here, so the writer thread must be gone before it touches the connection
+        executor.shutdown();
+        boolean terminated = false;
+        try {
+            terminated = executor.awaitTermination(5, TimeUnit.SECONDS);
+            if (!terminated) {
+                executor.shutdownNow();
+                terminated = executor.awaitTermination(5, TimeUnit.SECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        executor = null;
+        
+        if (!terminated) {
+            plugin.getLogger().warning("The BuilderMode database is not answering, cooldowns and sessions still queued are lost");
+            return;
+        }
+        flush();
+        closeConnection();
+    }
+    
+    @Override
+    public boolean isEnabled() {
+        return executor != null;
+    }
+    
+    // Every server starts with no cooldowns loaded, they are read per player on join
+    @Override
+    public Map<UUID, Long> getCooldowns() {
+        return Collections.emptyMap();
+    }
+    
+    @Override
+    public CompletableFuture<Long> loadCooldown(UUID uuid) {
+        CachedCooldown cached = cache.get(uuid);
+        if (cached != null && System.currentTimeMillis() - cached.loadedAt < configManager.getStorageCacheTtl()) {
+            return CompletableFuture.completedFuture(cached.lastUsed);
+        }
+        
+        ScheduledExecutorService current = executor;
+        if (current == null) {
+            return CompletableFuture.completedFuture(cached != null ? cached.lastUsed : 0L);
+        }
+        return CompletableFuture.supplyAsync(() -> readCooldown(uuid), current);
+    }
+    
+    @Override
+    public void recordCooldown(UUID uuid, long lastUsed) {
+        cache.put(uuid, new CachedCooldown(lastUsed, System.currentTimeMillis()));
+        if (executor != null) {
+            pendingCooldowns.merge(uuid, lastUsed, Math::max);
+        }
+    }
+    
+    @Override
+    public Map<UUID, StoredSession> getSessions() {
+        return restored;
+    }
+    
+    @Override
+    public void recordSession(UUID uuid, DistanceMode mode, int originalDistance, World world, long expirationTime) {
+        updateSession(uuid, new StoredSession(mode, originalDistance, world.getEnvironment(), world.getUID(), expirationTime, -1L, 0L));
+    }
+    
+    @Override
+    public void recordPause(UUID uuid, long remaining) {
+        StoredSession session = liveSessions.get(uuid);
+        if (session != null) {
+            updateSession(uuid, new StoredSession(session.getMode(), session.getOriginalDistance(), session.getDimension(),
+                session.getWorld(), session.getExpirationTime(), remaining, System.currentTimeMillis()));
+        }
+    }
+    
+    @Override
+    public void recordEnd(UUID uuid) {
+        updateSession(uuid, null);
+    }
+    
+    private void updateSession(UUID uuid, StoredSession session) {
+        if (executor == null) {
+            return;
+        }
+        
+        if (session != null) {
+            liveSessions.put(uuid, session);
+        } else {
+            liveSessions.remove(uuid);
+        }
+        pendingSessions.add(uuid);
+    }
+    
+    private long readCooldown(UUID uuid) {
+        long lastUsed = 0L;
+        try {
+            connect();
+            try (PreparedStatement statement = connection.prepareStatement(SELECT_COOLDOWN)) {
+                statement.setString(1, uuid.toString());
+                try (ResultSet result = statement.executeQuery()) {
+                    if (result.next()) {
+                        lastUsed = result.getLong(1);
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            plugin.getLogger().log(Level.WARNING, "Failed to read a cooldown from the BuilderMode database", e);
+            closeConnection();
+        }
+        
+        // A write still waiting for the next flush is newer than the row
+        lastUsed = Math.max(lastUsed, pendingCooldowns.getOrDefault(uuid, 0L));
+        cache.put(uuid, new CachedCooldown(lastUsed, System.currentTimeMillis()));
+        return lastUsed;
+    }
+    
+    private Map<UUID, StoredSession> readSessions() throws SQLException {
+        Map<UUID, StoredSession> sessions = new HashMap<>();
+        try (PreparedStatement statement = connection.prepareStatement(SELECT_SESSIONS)) {
+            statement.setString(1, serverId);
+            try (ResultSet result = statement.executeQuery()) {
+                while (result.next()) {
+                    StoredSession session = new StoredSession(DistanceMode.valueOf(result.getString(2)), result.getInt(3),
+                        World.Environment.valueOf(result.getString(4)), UUID.fromString(result.getString(8).trim()),
+                        result.getLong(5), result.getLong(6), result.getLong(7));
+                    sessions.put(UUID.fromString(result.getString(1)), session);
+                }
+            }
+        }
+        return sessions;
+    }
+    
+    private void flush() {
+        long now = System.currentTimeMillis();
+        long ttl = configManager.getStorageCacheTtl();
+        cache.values().removeIf((cached) -> now - cached.loadedAt >= ttl);
+        
+        if (pendingCooldowns.isEmpty() && pendingSessions.isEmpty()) {
+            return;
+        }
+        
+        Map<UUID, Long> cooldowns = new HashMap<>();
+        for (UUID uuid : pendingCooldowns.keySet()) {
+            Long lastUsed = pendingCooldowns.remove(uuid);
+            if (lastUsed != null) {
+                cooldowns.put(uuid, lastUsed);
+            }
+        }
+        List<UUID> sessions = new ArrayList<>();
+        for (UUID uuid : pendingSessions) {
+            if (pendingSessions.remove(uuid)) {
+                sessions.add(uuid);
+            }
+        }
+        
+        try {
+            connect();
+            write(cooldowns, sessions);
+        } catch (SQLException e) {
+            plugin.getLogger().log(Level.WARNING, "Failed to write to the BuilderMode database, retrying on the next flush", e);
+            closeConnection();
+            
+            // Put back whatever wasn't overtaken by a newer write meanwhile
+            for (Map.Entry<UUID, Long> entry : cooldowns.entrySet()) {
+                pendingCooldowns.merge(entry.getKey(), entry.getValue(), Math::max);
+            }
+            pendingSessions.addAll(sessions);
+        }
+    }
+    
+    private void write(Map<UUID, Long> cooldowns, List<UUID> sessions) throws SQLException {
+        connection.setAutoCommit(false);
+        try (PreparedStatement upsertCooldown = connection.prepareStatement(h2 ? MERGE_COOLDOWN : UPSERT_COOLDOWN);
+             PreparedStatement upsertSession = connection.prepareStatement(h2 ? MERGE_SESSION : UPSERT_SESSION);
+             PreparedStatement deleteSession = connection.prepareStatement(DELETE_SESSION)) {
+            for (Map.Entry<UUID, Long> entry : cooldowns.entrySet()) {
+                upsertCooldown.setString(1, entry.getKey().toString());
+                upsertCooldown.setLong(2, entry.getValue());
+                upsertCooldown.addBatch();
+            }
+            
+            // Each row gets the latest state, so the order of the writes doesn't matter
+            for (UUID uuid : sessions) {
+                StoredSession session = liveSessions.get(uuid);
+                if (session == null) {
+                    deleteSession.setString(1, serverId);
+                    deleteSession.setString(2, uuid.toString());
+                    deleteSession.addBatch();
+                    continue;
+                }
+                
+                upsertSession.setString(1, serverId);
+                upsertSession.setString(2, uuid.toString());
+                upsertSession.setString(3, session.getMode().name());
+                upsertSession.setInt(4, session.getOriginalDistance());
+                upsertSession.setString(5, session.getDimension().name());
+                upsertSession.setLong(6, session.getExpirationTime());
+                upsertSession.setLong(7, session.getRemainingAtPause());
+                upsertSession.setLong(8, session.getPausedAt());
+                upsertSession.setString(9, session.getWorld().toString());
+                upsertSession.addBatch();
+            }
+            
+            upsertCooldown.executeBatch();
+            upsertSession.executeBatch();
+            deleteSession.executeBatch();
+            connection.commit();
+        } catch (SQLException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(true);
+        }
+    }
+    
+    private void connect() throws SQLException {
+        if (connection != null && !connection.isClosed()) {
+            return;
+        }
+        
+        String username = configManager.getStorageUsername();
+        connection = username.isEmpty() ? DriverManager.getConnection(url)
+            : DriverManager.getConnection(url, username, configManager.getStoragePassword());
+        h2 = connection.getMetaData().getDatabaseProductName().equalsIgnoreCase("H2");
+        
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(CREATE_COOLDOWNS);
+            statement.execute(CREATE_SESSIONS);
+        }
+    }
+    
+    private void closeConnection() {
+        if (connection == null) {
+            return;
+        }
+        
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            // Already broken, a new connection is opened on the next write
+        }
+        connection = null;
+    }
+    
+    private static final class CachedCooldown {
+        
+        private final long lastUsed;
+        private final long loadedAt;
+        
+        private CachedCooldown(long lastUsed, long loadedAt) {
+            this.lastUsed = lastUsed;
+            this.loadedAt = loadedAt;
+        }
+    }
+}
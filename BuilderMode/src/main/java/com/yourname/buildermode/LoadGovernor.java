@@ -0,0 +1,110 @@
+package com.yourname.buildermode;
+
+import org.bukkit.World;
+
+// Lowers the render distance BuilderMode grants while the server is struggling. Every
+// check-interval the average tick time and TPS are sampled; above the throttle threshold
+// the allowed distance drops by one step, and it only comes back a step at a time after
+// the server has stayed below the (lower) recover threshold for several checks in a row.
+// It only samples while sessions are active, the next session starts from the last reduction.
+public class LoadGovernor {
+    
+    private final BuilderMode plugin;
+    private final ConfigManager configManager;
+    private final RenderDistanceManager renderDistanceManager;
+    // Chunks taken off every world's configured distance
+    private volatile int reduction;
+    private int healthyChecks;
+    private boolean unsupported;
+    private long tick;
+    
+    public LoadGovernor(BuilderMode plugin, ConfigManager configManager, RenderDistanceManager renderDistanceManager, CheckScheduler checkScheduler) {
+        this.plugin = plugin;
+        this.configManager = configManager;
+        this.renderDistanceManager = renderDistanceManager;
+        
+        checkScheduler.everyTick(this::tick);
+    }
+    
+    // The distance a session in this world may have right now
+    public int getAllowedDistance(World world) {
+        int configured = configManager.getRenderDistance(world);
+        if (reduction == 0) {
+            return configured;
+        }
+        
+        int floor = Math.min(configured, configManager.getGovernorMinDistance());
+        return Math.max(floor, configured - reduction);
+    }
+    
+    private void tick() {
+        long now = ++tick;
+        if (unsupported || now % configManager.getGovernorCheckInterval() != 0) {
+            return;
+        }
+        
+        if (!configManager.isGovernorEnabled()) {
+            if (reduction > 0) {
+                setReduction(0);
+            }
+            return;
+        }
+        
+        double mspt;
+        double tps;
+        try {
+            mspt = plugin.getServer().getAverageTickTime();
+            tps = plugin.getServer().getTPS()[0];
+        } catch (UnsupportedOperationException e) {
+            // Folia has no server-wide tick, only per-region ones
+            unsupported = true;
+            plugin.getLogger().warning("The load governor needs a server-wide tick time, which this server does not provide. It has been turned off.");
+            return;
+        }
+        
+        if (mspt > configManager.getGovernorThrottleMspt() || tps < configManager.getGovernorMinTps()) {
+            healthyChecks = 0;
+            int next = Math.min(reduction + configManager.getGovernorStep(), getMaxReduction());
+            if (next > reduction) {
+                plugin.getLogger().info("Server is under load (" + format(mspt) + " mspt, " + format(tps) + " TPS), BuilderMode distances are now lowered by " + next + " chunk(s)");
+                setReduction(next);
+            }
+        } else if (reduction > 0 && mspt < configManager.getGovernorRecoverMspt()) {
+            if (++healthyChecks >= configManager.getGovernorRecoverChecks()) {
+                healthyChecks = 0;
+                int next = Math.max(0, reduction - configManager.getGovernorStep());
+                plugin.getLogger().info("Server has recovered (" + format(mspt) + " mspt, " + format(tps) + " TPS), BuilderMode distances are now lowered by " + next + " chunk(s)");
+                setReduction(next);
+            }
+        } else {
+            // Between the two thresholds nothing changes, that gap is what stops flapping
+            healthyChecks = 0;
+        }
+    }
+    
+    // Going further than this wouldn't lower any dimension or world below its floor
+    private int getMaxReduction() {
+        int max = 0;
+        for (World.Environment environment : World.Environment.values()) {
+            max = Math.max(max, getMaxReduction(configManager.getRenderDistance(environment)));
+        }
+        for (ConfigManager.DimensionSettings world : configManager.getLoadedWorldSettings()) {
+            max = Math.max(max, getMaxReduction(world.getRenderDistance()));
+        }
+        return max;
+    }
+    
+    private int getMaxReduction(int configured) {
+        return configured - Math.min(configured, configManager.getGovernorMinDistance());
+    }
+    
+    private void setReduction(int next) {
+        boolean throttled = next > reduction;
+        reduction = next;
+        renderDistanceManager.applyAllowedDistances(throttled);
+    }
+    
+    private static String format(double value) {
+        return String.format("%.1f", value);
+    }
+}
@@ -0,0 +1,213 @@
+package com.yourname.buildermode;
+
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.TextComponent;
+import net.kyori.adventure.text.format.Style;
+import net.kyori.adventure.text.serializer.legacy.LegacyComponentSerializer;
+import net.kyori.adventure.text.serializer.legacy.LegacyFormat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// A message compiled once per config load. The & color codes are turned into styles up
+// front and each known {placeholder} becomes a numbered slot, so rendering only fills the
+// slots in. Renders with numbers are cached, the same few distances and durations come up
+// over and over when a lot of sessions start or end together.
+public final class MessageTemplate {
+    
+    // Power of two, one entry per slot of the cache
+    private static final int CACHE_SIZE = 64;
+    
+    private final Part[] parts;
+    // Set when there are no slots, the message is then always the same component
+    private final Component constant;
+    private final Entry[] cache;
+    
+    private MessageTemplate(Part[] parts, boolean hasSlots) {
+        this.parts = parts;
+        this.constant = hasSlots ? null : build(parts, null, 0L, 0L, 0L, 0);
+        this.cache = hasSlots ? new Entry[CACHE_SIZE] : null;
+    }
+    
+    // Placeholders not in the list are kept as plain text
+    public static MessageTemplate compile(String text, List<String> placeholders) {
+        List<Part> parts = new ArrayList<>();
+        StringBuilder run = new StringBuilder();
+        Style style = Style.empty();
+        boolean hasSlots = false;
+        
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            
+            if (c == '&' && i + 1 < text.length()) {
+                LegacyFormat format = LegacyComponentSerializer.parseChar(text.charAt(i + 1));
+                if (format != null) {
+                    flush(parts, run, style);
+                    style = apply(style, format);
+                    i++;
+                    continue;
+                }
+            }
+            
+            if (c == '{') {
+                int end = text.indexOf('}', i);
+                int slot = end > i ? placeholders.indexOf(text.substring(i + 1, end)) : -1;
+                if (slot >= 0) {
+                    flush(parts, run, style);
+                    parts.add(new Part(slot, text.substring(i, end + 1), style));
+                    hasSlots = true;
+                    i = end;
+                    continue;
+                }
+            }
+            
+            run.append(c);
+        }
+        flush(parts, run, style);
+        
+        return new MessageTemplate(parts.toArray(new Part[0]), hasSlots);
+    }
+    
+    // The placeholders of a message in the order they first appear, which is the slot order
+    public static List<String> placeholders(String text) {
+        List<String> names = new ArrayList<>();
+        int start = text.indexOf('{');
+        while (start >= 0) {
+            int end = text.indexOf('}', start);
+            if (end < 0) {
+                break;
+            }
+            
+            String name = text.substring(start + 1, end);
+            if (!name.isEmpty() && !names.contains(name)) {
+                names.add(name);
+            }
+            start = text.indexOf('{', end);
+        }
+        return names;
+    }
+    
+    private static void flush(List<Part> parts, StringBuilder run, Style style) {
+        if (run.length() > 0) {
+            parts.add(new Part(Component.text(run.toString(), style)));
+            run.setLength(0);
+        }
+    }
+    
+    // Same rules as the legacy format: a color clears the decorations before it
+    private static Style apply(Style style, LegacyFormat format) {
+        if (format.reset()) {
+            return Style.empty();
+        }
+        if (format.color() != null) {
+            return Style.empty().color(format.color());
+        }
+        if (format.decoration() != null) {
+            return style.decorate(format.decoration());
+        }
+        return style;
+    }
+    
+    // Slots are left as their {placeholder} text
+    public Component render() {
+        return constant != null ? constant : build(parts, null, 0L, 0L, 0L, 0);
+    }
+    
+    public Component render(long first) {
+        return cached(first, 0L, 0L, 1);
+    }
+    
+    public Component render(long first, long second) {
+        return cached(first, second, 0L, 2);
+    }
+    
+    public Component render(long first, long second, long third) {
+        return cached(first, second, third, 3);
+    }
+    
+    // Not cached, for the admin commands that fill in names and formatted numbers
+    public Component render(Object... values) {
+        if (constant != null) {
+            return constant;
+        }
+        return build(parts, values, 0L, 0L, 0L, values.length);
+    }
+    
+    private Component cached(long a, long b, long c, int count) {
+        if (constant != null) {
+            return constant;
+        }
+        
+        int index = Long.hashCode((a * 31 + b) * 31 + c) & (CACHE_SIZE - 1);
+        Entry entry = cache[index];
+        if (entry != null && entry.a == a && entry.b == b && entry.c == c && entry.count == count) {
+            return entry.component;
+        }
+        
+        Component component = build(parts, null, a, b, c, count);
+        // Entries are immutable, so a racing reader sees either the old or the new one whole
+        cache[index] = new Entry(a, b, c, count, component);
+        return component;
+    }
+    
+    private static Component build(Part[] parts, Object[] values, long a, long b, long c, int count) {
+        if (parts.length == 1 && parts[0].component != null) {
+            return parts[0].component;
+        }
+        
+        TextComponent.Builder builder = Component.text();
+        for (Part part : parts) {
+            if (part.component != null) {
+                builder.append(part.component);
+            } else if (part.slot >= count) {
+                builder.append(Component.text(part.placeholder, part.style));
+            } else if (values != null) {
+                builder.append(Component.text(String.valueOf(values[part.slot]), part.style));
+            } else {
+                long value = part.slot == 0 ? a : part.slot == 1 ? b : c;
+                builder.append(Component.text(String.valueOf(value), part.style));
+            }
+        }
+        return builder.build();
+    }
+    
+    // Either fixed text or a slot, which keeps the style in effect where the placeholder was
+    private static final class Part {
+        
+        private final Component component;
+        private final int slot;
+        private final String placeholder;
+        private final Style style;
+        
+        private Part(Component component) {
+            this.component = component;
+            this.slot = -1;
+            this.placeholder = null;
+            this.style = null;
+        }
+        
+        private Part(int slot, String placeholder, Style style) {
+            this.component = null;
+            this.slot = slot;
+            this.placeholder = placeholder;
+            this.style = style;
+        }
+    }
+    
+    private static final class Entry {
+        
+        private final long a;
+        private final long b;
+        private final long c;
+        private final int count;
+        private final Component component;
+        
+        private Entry(long a, long b, long c, int count, Component component) {
+            this.a = a;
+            this.b = b;
+            this.c = c;
+            this.count = count;
+            this.component = component;
+        }
+    }
+}
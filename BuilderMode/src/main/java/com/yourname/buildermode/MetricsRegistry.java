@@ -0,0 +1,281 @@
+package com.yourname.buildermode;
+
+import org.bukkit.event.Event;
+import org.bukkit.event.EventException;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.Listener;
+import org.bukkit.plugin.EventExecutor;
+import org.bukkit.plugin.Plugin;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+import java.util.logging.Level;
+
+// Counters, gauges and timing histograms for /bm stats and JMX. Counters and histograms
+// are striped (LongAdder) so region threads on Folia never contend on a shared value.
+public class MetricsRegistry {
+    
+    private static final String OBJECT_NAME = "com.yourname.buildermode:type=Metrics";
+    
+    private final Map<String, LongAdder> counters = new ConcurrentSkipListMap<>();
+    private final Map<String, LongSupplier> gauges = new ConcurrentSkipListMap<>();
+    private final Map<String, Histogram> timers = new ConcurrentSkipListMap<>();
+    private ObjectName objectName;
+    
+    public LongAdder counter(String name) {
+        return counters.computeIfAbsent(name, (key) -> new LongAdder());
+    }
+    
+    public void gauge(String name, LongSupplier supplier) {
+        gauges.put(name, supplier);
+    }
+    
+    public Histogram timer(String name) {
+        return timers.computeIfAbsent(name, (key) -> new Histogram());
+    }
+    
+    public Map<String, LongAdder> getCounters() {
+        return counters;
+    }
+    
+    public Map<String, LongSupplier> getGauges() {
+        return gauges;
+    }
+    
+    public Map<String, Histogram> getTimers() {
+        return timers;
+    }
+    
+    // Registers the listener as Bukkit would. Only when timed is every @EventHandler wrapped
+    // so its calls show up in /bm stats, through the same generated executor Bukkit uses.
+    public void registerEvents(Listener listener, Plugin plugin, boolean timed) {
+        if (!timed) {
+            plugin.getServer().getPluginManager().registerEvents(listener, plugin);
+            return;
+        }
+        
+        for (Method method : listener.getClass().getDeclaredMethods()) {
+            EventHandler handler = method.getAnnotation(EventHandler.class);
+            if (handler == null || method.getParameterCount() != 1 || !Event.class.isAssignableFrom(method.getParameterTypes()[0])) {
+                continue;
+            }
+            
+            Class<? extends Event> eventClass = method.getParameterTypes()[0].asSubclass(Event.class);
+            Histogram histogram = timer("listener." + method.getName());
+            EventExecutor handlerExecutor = EventExecutor.create(method, eventClass);
+            
+            EventExecutor executor = (target, event) -> {
+                // Subclasses of the event are delivered here too
+                if (!eventClass.isInstance(event)) {
+                    return;
+                }
+                
+                long start = System.nanoTime();
+                try {
+                    handlerExecutor.execute(target, event);
+                } finally {
+                    histogram.record(System.nanoTime() - start);
+                }
+            };
+            plugin.getServer().getPluginManager().registerEvent(eventClass, listener, handler.priority(), executor, plugin, handler.ignoreCancelled());
+        }
+    }
+    
+    public void registerMBean(Plugin plugin) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            // Left behind by a previous instance after a plugin reload
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+            server.registerMBean(new JmxView(), name);
+            objectName = name;
+        } catch (JMException e) {
+            plugin.getLogger().log(Level.WARNING, "Failed to register the metrics MBean", e);
+        }
+    }
+    
+    public void unregisterMBean() {
+        if (objectName == null) {
+            return;
+        }
+        
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+        } catch (JMException e) {
+            // Already gone
+        }
+        objectName = null;
+    }
+    
+    // Power-of-two buckets of nanoseconds, percentiles are reported as the bucket's upper bound
+    public static final class Histogram {
+        
+        private final LongAdder[] buckets = new LongAdder[64];
+        private final LongAdder count = new LongAdder();
+        private final LongAdder sum = new LongAdder();
+        private final LongAccumulator max = new LongAccumulator(Math::max, 0L);
+        
+        private Histogram() {
+            for (int i = 0; i < buckets.length; i++) {
+                buckets[i] = new LongAdder();
+            }
+        }
+        
+        // Wraps an action so every call is recorded here
+        public <T> Consumer<T> time(Consumer<T> action) {
+            return (value) -> {
+                long start = System.nanoTime();
+                try {
+                    action.accept(value);
+                } finally {
+                    record(System.nanoTime() - start);
+                }
+            };
+        }
+        
+        public void record(long nanos) {
+            long value = Math.max(0L, nanos);
+            buckets[63 - Long.numberOfLeadingZeros(value | 1L)].increment();
+            count.increment();
+            sum.add(value);
+            max.accumulate(value);
+        }
+        
+        public long getCount() {
+            return count.sum();
+        }
+        
+        public long getMean() {
+            long calls = count.sum();
+            return calls == 0 ? 0L : sum.sum() / calls;
+        }
+        
+        public long getMax() {
+            return max.get();
+        }
+        
+        public long getPercentile(double quantile) {
+            long calls = count.sum();
+            if (calls == 0) {
+                return 0L;
+            }
+            
+            long rank = (long) Math.ceil(calls * quantile);
+            long seen = 0;
+            for (int i = 0; i < buckets.length; i++) {
+                seen += buckets[i].sum();
+                if (seen >= rank) {
+                    return Math.min(getMax(), i == 62 ? Long.MAX_VALUE : (1L << (i + 1)) - 1);
+                }
+            }
+            return getMax();
+        }
+    }
+    
+    // Flat Long attributes, which JMX exporters can scrape without extra mapping
+    private final class JmxView implements DynamicMBean {
+        
+        @Override
+        public Object getAttribute(String attribute) throws AttributeNotFoundException {
+            LongAdder counter = counters.get(attribute);
+            if (counter != null) {
+                return counter.sum();
+            }
+            
+            LongSupplier gauge = gauges.get(attribute);
+            if (gauge != null) {
+                return gauge.getAsLong();
+            }
+            
+            int dot = attribute.lastIndexOf('.');
+            Histogram histogram = dot > 0 ? timers.get(attribute.substring(0, dot)) : null;
+            if (histogram != null) {
+                switch (attribute.substring(dot + 1)) {
+                    case "count":
+                        return histogram.getCount();
+                    case "meanNanos":
+                        return histogram.getMean();
+                    case "p50Nanos":
+                        return histogram.getPercentile(0.5);
+                    case "p99Nanos":
+                        return histogram.getPercentile(0.99);
+                    case "maxNanos":
+                        return histogram.getMax();
+                    default:
+                        break;
+                }
+            }
+            throw new AttributeNotFoundException(attribute);
+        }
+        
+        @Override
+        public AttributeList getAttributes(String[] attributes) {
+            AttributeList list = new AttributeList();
+            for (String attribute : attributes) {
+                try {
+                    list.add(new Attribute(attribute, getAttribute(attribute)));
+                } catch (AttributeNotFoundException e) {
+                    // Skipped, as the JMX contract allows
+                }
+            }
+            return list;
+        }
+        
+        @Override
+        public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+            throw new AttributeNotFoundException(attribute.getName() + " is read-only");
+        }
+        
+        @Override
+        public AttributeList setAttributes(AttributeList attributes) {
+            return new AttributeList();
+        }
+        
+        @Override
+        public Object invoke(String actionName, Object[] params, String[] signature) {
+            return null;
+        }
+        
+        @Override
+        public MBeanInfo getMBeanInfo() {
+            List<MBeanAttributeInfo> attributes = new ArrayList<>();
+            for (String name : counters.keySet()) {
+                attributes.add(attribute(name));
+            }
+            for (String name : gauges.keySet()) {
+                attributes.add(attribute(name));
+            }
+            for (String name : timers.keySet()) {
+                for (String suffix : new String[] {"count", "meanNanos", "p50Nanos", "p99Nanos", "maxNanos"}) {
+                    attributes.add(attribute(name + "." + suffix));
+                }
+            }
+            
+            return new MBeanInfo(MetricsRegistry.class.getName(), "BuilderMode metrics",
+                attributes.toArray(new MBeanAttributeInfo[0]), null, null, null);
+        }
+        
+        private MBeanAttributeInfo attribute(String name) {
+            return new MBeanAttributeInfo(name, Long.class.getName(), name, true, false, false);
+        }
+    }
+}
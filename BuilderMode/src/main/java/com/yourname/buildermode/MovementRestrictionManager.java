@@ -1,24 +1,31 @@
 package com.yourname.buildermode;
 
+import com.destroystokyo.paper.event.player.PlayerArmorChangeEvent;
 import org.bukkit.Material;
 import org.bukkit.entity.EntityType;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
+import org.bukkit.event.HandlerList;
 import org.bukkit.event.Listener;
+import org.bukkit.event.block.BlockDispenseArmorEvent;
 import org.bukkit.event.entity.EntityToggleGlideEvent;
+import org.bukkit.event.inventory.ClickType;
 import org.bukkit.event.inventory.InventoryClickEvent;
-import org.bukkit.event.player.PlayerChangedWorldEvent;
+import org.bukkit.event.inventory.InventoryDragEvent;
+import org.bukkit.event.inventory.InventoryType;
 import org.bukkit.event.player.PlayerInteractEvent;
-import org.bukkit.event.player.PlayerQuitEvent;
-import org.bukkit.event.player.PlayerTeleportEvent;
 import org.bukkit.event.vehicle.VehicleEnterEvent;
 import org.bukkit.inventory.EquipmentSlot;
 import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.PlayerInventory;
 
-public class MovementRestrictionManager implements Listener {
+// The restriction listeners are only registered while at least one session is active, so
+// the many inventory, interact and glide events cost nothing while nobody is building
+public class MovementRestrictionManager implements Listener, SessionRegistry.ActivityListener {
     
     private final BuilderMode plugin;
+    private boolean attached;
     
     public MovementRestrictionManager(BuilderMode plugin) {
         this.plugin = plugin;
@@ -26,87 +33,43 @@ public class MovementRestrictionManager implements Listener {
         // Log that this manager is being initialized
         plugin.getLogger().info("MovementRestrictionManager initialized");
         
-        // Start a repeating task to check for elytras
-        if (isFolia()) {
-            startFoliaElytraCheck();
-            startFoliaMountCheck();
-        } else {
-            startBukkitElytraCheck();
-            startBukkitMountCheck();
-        }
+        registerSweeps();
     }
     
-    private boolean isFolia() {
-        try {
-            Class.forName("io.papermc.paper.threadedregions.scheduler.ScheduledTask");
-            return true;
-        } catch (ClassNotFoundException e) {
-            return false;
-        }
-    }
-    
-    private void startFoliaElytraCheck() {
-        plugin.getServer().getGlobalRegionScheduler().runAtFixedRate(plugin, (task) -> {
+    // Called again after a reload changed an interval, which replaces the earlier sweeps
+    public void registerSweeps() {
+        CheckScheduler checkScheduler = plugin.getCheckScheduler();
+        
+        // Elytras are handled by the equip events, this only reconciles missed cases
+        checkScheduler.register("elytra-sweep", plugin.getConfigManager().getElytraReconcileInterval() * 20L, (player) -> {
             // Only check if elytra is disabled
-            if (!plugin.getConfigManager().isElytraDisabled()) {
-                return;
+            if (plugin.getConfigManager().isElytraDisabled()) {
+                checkAndRemoveElytra(player);
             }
-            
-            for (Player player : plugin.getServer().getOnlinePlayers()) {
-                if (plugin.getRenderDistanceManager().isActive(player)) {
-                    checkAndRemoveElytra(player);
-                }
-            }
-        }, 1L, 10L);
-    }
-    
-    private void startBukkitElytraCheck() {
-        plugin.getServer().getScheduler().runTaskTimer(plugin, () -> {
-            // Only check if elytra is disabled
-            if (!plugin.getConfigManager().isElytraDisabled()) {
-                return;
-            }
-            
-            for (Player player : plugin.getServer().getOnlinePlayers()) {
-                if (plugin.getRenderDistanceManager().isActive(player)) {
-                    checkAndRemoveElytra(player);
-                }
-            }
-        }, 1L, 10L);
-    }
-    
-    private void startFoliaMountCheck() {
-        long interval = plugin.getConfigManager().getMountCheckInterval() * 20L; // Convert to ticks
+        });
         
-        plugin.getServer().getGlobalRegionScheduler().runAtFixedRate(plugin, (task) -> {
+        checkScheduler.register("mount-sweep", plugin.getConfigManager().getMountCheckInterval() * 20L, (player) -> {
             // Only check if entity riding is disabled
-            if (!plugin.getConfigManager().isEntityRidingDisabled()) {
-                return;
+            if (plugin.getConfigManager().isEntityRidingDisabled()) {
+                checkAndDismount(player);
             }
-            
-            for (Player player : plugin.getServer().getOnlinePlayers()) {
-                if (plugin.getRenderDistanceManager().isActive(player)) {
-                    checkAndDismount(player);
-                }
-            }
-        }, interval, interval);
+        });
     }
     
-    private void startBukkitMountCheck() {
-        long interval = plugin.getConfigManager().getMountCheckInterval() * 20L; // Convert to ticks
-        
-        plugin.getServer().getScheduler().runTaskTimer(plugin, () -> {
-            // Only check if entity riding is disabled
-            if (!plugin.getConfigManager().isEntityRidingDisabled()) {
-                return;
-            }
-            
-            for (Player player : plugin.getServer().getOnlinePlayers()) {
-                if (plugin.getRenderDistanceManager().isActive(player)) {
-                    checkAndDismount(player);
-                }
-            }
-        }, interval, interval);
+    @Override
+    public synchronized void onFirstStarted() {
+        if (!attached) {
+            plugin.getMetrics().registerEvents(this, plugin, plugin.getConfigManager().isListenerTimingEnabled());
+            attached = true;
+        }
+    }
+    
+    @Override
+    public synchronized void onLastEnded() {
+        if (attached) {
+            HandlerList.unregisterAll(this);
+            attached = false;
+        }
     }
     
     @EventHandler(priority = EventPriority.HIGHEST)
@@ -130,8 +93,8 @@ public class MovementRestrictionManager implements Listener {
         event.setCancelled(true);
         player.sendMessage(plugin.getConfigManager().getMessage("cannot-ride-entity"));
         
-        if (plugin.getConfigManager().isVerboseEnabled()) {
-            plugin.getLogger().info("Blocked " + player.getName() + " from mounting " + event.getVehicle().getType());
+        if (plugin.getEventLog().isEnabled(EventCategory.MOUNT_BLOCKED)) {
+            plugin.getEventLog().record(EventCategory.MOUNT_BLOCKED, player, event.getVehicle().getType());
         }
     }
     
@@ -175,101 +138,139 @@ public class MovementRestrictionManager implements Listener {
             return;
         }
         
-        // Check if they're trying to equip an elytra
-        if (event.getSlot() == 38) { // Chest slot
-            ItemStack item = event.getCursor();
-            if (item != null && item.getType() == Material.ELYTRA) {
-                event.setCancelled(true);
-                player.sendMessage(plugin.getConfigManager().getMessage("cannot-equip-elytra"));
+        if (isElytraEquipClick(event, player)) {
+            event.setCancelled(true);
+            player.sendMessage(plugin.getConfigManager().getMessage("cannot-equip-elytra"));
+        }
+    }
+    
+    private boolean isElytraEquipClick(InventoryClickEvent event, Player player) {
+        // Shift-clicking an elytra in the player's own inventory moves it straight into an
+        // empty chest slot. From a container, or with a chestplate on, it only moves items.
+        if (event.isShiftClick() && event.getSlotType() != InventoryType.SlotType.ARMOR) {
+            if (!(event.getClickedInventory() instanceof PlayerInventory)) {
+                return false;
             }
+            ItemStack chest = player.getInventory().getChestplate();
+            return (chest == null || chest.isEmpty()) && isElytra(event.getCurrentItem());
         }
         
-        if (event.getCurrentItem() != null && event.getCurrentItem().getType() == Material.ELYTRA) {
-            if (event.isShiftClick() && event.getSlot() != 38) {
-                event.setCancelled(true);
-                player.sendMessage(plugin.getConfigManager().getMessage("cannot-equip-elytra"));
-            }
+        if (event.getSlotType() != InventoryType.SlotType.ARMOR) {
+            return false;
+        }
+        
+        // Placing from the cursor, swapping from a hotbar key or swapping from the offhand
+        if (event.getClick() == ClickType.NUMBER_KEY) {
+            return isElytra(player.getInventory().getItem(event.getHotbarButton()));
+        }
+        if (event.getClick() == ClickType.SWAP_OFFHAND) {
+            return isElytra(player.getInventory().getItem(EquipmentSlot.OFF_HAND));
         }
+        return isElytra(event.getCursor());
     }
     
     @EventHandler(priority = EventPriority.HIGHEST)
-    public void onPlayerInteract(PlayerInteractEvent event) {
-        Player player = event.getPlayer();
+    public void onInventoryDrag(InventoryDragEvent event) {
+        if (!(event.getWhoClicked() instanceof Player)) {
+            return;
+        }
+        
+        Player player = (Player) event.getWhoClicked();
         
         if (!plugin.getRenderDistanceManager().isActive(player)) {
             return;
         }
         
         // Check if elytra is disabled
-        if (!plugin.getConfigManager().isElytraDisabled()) {
+        if (!plugin.getConfigManager().isElytraDisabled() || !isElytra(event.getOldCursor())) {
             return;
         }
         
-        // Prevent right-clicking with elytra to equip
-        ItemStack item = event.getItem();
-        if (item != null && item.getType() == Material.ELYTRA) {
-            if (event.getHand() == EquipmentSlot.HAND || event.getHand() == EquipmentSlot.OFF_HAND) {
+        for (int rawSlot : event.getRawSlots()) {
+            if (event.getView().getSlotType(rawSlot) == InventoryType.SlotType.ARMOR) {
                 event.setCancelled(true);
                 player.sendMessage(plugin.getConfigManager().getMessage("cannot-equip-elytra"));
+                return;
             }
         }
     }
     
     @EventHandler(priority = EventPriority.HIGHEST)
-    public void onPlayerTeleport(PlayerTeleportEvent event) {
-        Player player = event.getPlayer();
+    public void onDispenseArmor(BlockDispenseArmorEvent event) {
+        if (!(event.getTargetEntity() instanceof Player)) {
+            return;
+        }
         
-        // Check if teleporting to a different world
-        if (event.getFrom().getWorld() != null && event.getTo() != null && event.getTo().getWorld() != null) {
-            if (!event.getFrom().getWorld().equals(event.getTo().getWorld())) {
-                plugin.getLogger().info("Player " + player.getName() + " teleporting to different world. BuilderMode active: " + plugin.getRenderDistanceManager().isActive(player));
-                
-                // Disable BuilderMode if active when changing dimensions
-                if (plugin.getRenderDistanceManager().isActive(player)) {
-                    plugin.getLogger().info("Disabling BuilderMode for " + player.getName() + " due to dimension change via teleport");
-                    plugin.getRenderDistanceManager().disableOnDimensionChange(player);
-                }
-            }
+        Player player = (Player) event.getTargetEntity();
+        
+        if (!plugin.getRenderDistanceManager().isActive(player)) {
+            return;
+        }
+        
+        if (plugin.getConfigManager().isElytraDisabled() && isElytra(event.getItem())) {
+            event.setCancelled(true);
         }
     }
     
-    @EventHandler(priority = EventPriority.HIGHEST)
-    public void onPlayerChangedWorld(PlayerChangedWorldEvent event) {
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onArmorChange(PlayerArmorChangeEvent event) {
+        if (event.getSlot() != EquipmentSlot.CHEST || !isElytra(event.getNewItem())) {
+            return;
+        }
+        
         Player player = event.getPlayer();
         
-        plugin.getLogger().info("Player " + player.getName() + " changed world. BuilderMode active: " + plugin.getRenderDistanceManager().isActive(player));
+        if (!plugin.getRenderDistanceManager().isActive(player)) {
+            return;
+        }
         
-        // Disable BuilderMode if active when changing dimensions
-        if (plugin.getRenderDistanceManager().isActive(player)) {
-            plugin.getLogger().info("Disabling BuilderMode for " + player.getName() + " due to dimension change");
-            plugin.getRenderDistanceManager().disableOnDimensionChange(player);
+        // Check if elytra is disabled
+        if (!plugin.getConfigManager().isElytraDisabled()) {
+            return;
         }
+        
+        // Catches every equip path the guards above miss, removed on the next tick
+        plugin.getPlatformScheduler().runAtEntity(player, () -> {
+            checkAndRemoveElytra(player);
+        }, null);
     }
     
-    @EventHandler(priority = EventPriority.MONITOR)
-    public void onPlayerQuit(PlayerQuitEvent event) {
+    @EventHandler(priority = EventPriority.HIGHEST)
+    public void onPlayerInteract(PlayerInteractEvent event) {
         Player player = event.getPlayer();
         
-        // Disable BuilderMode and start cooldown when player logs out
-        if (plugin.getRenderDistanceManager().isActive(player)) {
-            if (plugin.getConfigManager().isVerboseEnabled()) {
-                plugin.getLogger().info("Player " + player.getName() + " disconnected while BuilderMode was active. Disabling and starting cooldown.");
+        if (!plugin.getRenderDistanceManager().isActive(player)) {
+            return;
+        }
+        
+        // Check if elytra is disabled
+        if (!plugin.getConfigManager().isElytraDisabled()) {
+            return;
+        }
+        
+        // Prevent right-clicking with elytra to equip
+        ItemStack item = event.getItem();
+        if (item != null && item.getType() == Material.ELYTRA) {
+            if (event.getHand() == EquipmentSlot.HAND || event.getHand() == EquipmentSlot.OFF_HAND) {
+                event.setCancelled(true);
+                player.sendMessage(plugin.getConfigManager().getMessage("cannot-equip-elytra"));
             }
-            plugin.getRenderDistanceManager().disableOnLogout(player);
         }
     }
     
     public boolean isWearingElytra(Player player) {
-        ItemStack chestplate = player.getInventory().getChestplate();
-        return chestplate != null && chestplate.getType() == Material.ELYTRA;
+        return isElytra(player.getInventory().getChestplate());
+    }
+    
+    private boolean isElytra(ItemStack item) {
+        return item != null && item.getType() == Material.ELYTRA;
     }
     
     private void checkAndDismount(Player player) {
         // Check if player is riding/mounted on anything
         if (player.isInsideVehicle()) {
-            if (plugin.getConfigManager().isVerboseEnabled()) {
-                plugin.getLogger().info("Mount check: Dismounting " + player.getName() + " from " + 
-                    (player.getVehicle() != null ? player.getVehicle().getType() : "unknown"));
+            if (plugin.getEventLog().isEnabled(EventCategory.DISMOUNT)) {
+                plugin.getEventLog().record(EventCategory.DISMOUNT, player, player.getVehicle() != null ? player.getVehicle().getType() : null);
             }
             
             player.leaveVehicle();
@@ -277,7 +278,7 @@ public class MovementRestrictionManager implements Listener {
         }
     }
     
-    private void checkAndRemoveElytra(Player player) {
+    public void checkAndRemoveElytra(Player player) {
         ItemStack chestplate = player.getInventory().getChestplate();
         
         if (chestplate != null && chestplate.getType() == Material.ELYTRA) {
@@ -288,15 +289,8 @@ public class MovementRestrictionManager implements Listener {
                 player.getInventory().addItem(chestplate);
                 player.sendMessage(plugin.getConfigManager().getMessage("elytra-removed-inventory"));
             } else {
-                // Drop on ground if inventory is full - use region scheduler for Folia
-                final ItemStack elytraToDrop = chestplate.clone();
-                if (isFolia()) {
-                    player.getScheduler().run(plugin, (task) -> {
-                        player.getWorld().dropItemNaturally(player.getLocation(), elytraToDrop);
-                    }, null);
-                } else {
-                    player.getWorld().dropItemNaturally(player.getLocation(), elytraToDrop);
-                }
+                // Drop on ground if inventory is full, we are already on the player's thread
+                player.getWorld().dropItemNaturally(player.getLocation(), chestplate.clone());
                 player.sendMessage(plugin.getConfigManager().getMessage("elytra-removed-ground"));
             }
         }
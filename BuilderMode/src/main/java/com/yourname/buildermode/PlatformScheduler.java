@@ -0,0 +1,53 @@
+package com.yourname.buildermode;
+
+import org.bukkit.Location;
+import org.bukkit.entity.Entity;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.function.Consumer;
+
+// Where BuilderMode's work runs. Picked once on enable: Folia gets its region schedulers,
+// any other server the main thread. Every method may be called from any thread.
+public interface PlatformScheduler {
+    
+    static PlatformScheduler create(BuilderMode plugin, boolean folia) {
+        return folia ? new FoliaPlatformScheduler(plugin) : new BukkitPlatformScheduler(plugin);
+    }
+    
+    boolean isFolia();
+    
+    // Next tick, on the main thread or Folia's global region
+    void runGlobal(Runnable task);
+    
+    Task runGlobalTimer(Runnable task, long delayTicks, long periodTicks);
+    
+    // Next tick, on the thread that owns the location's chunk
+    void runAtLocation(Location location, Runnable task);
+    
+    // Next tick, on the thread that owns the entity. Retired runs instead if the entity is
+    // removed first, it may be null.
+    void runAtEntity(Entity entity, Runnable task, Runnable retired);
+    
+    // For work started from a global task. The main thread owns every entity, so this runs
+    // right away there, on Folia it is handed to the entity's region.
+    <T extends Entity> void dispatch(T entity, Consumer<? super T> task, Runnable retired);
+    
+    // Off the tick, each task on its own virtual thread
+    void runAsync(Runnable task);
+    
+    // Runs its tasks one at a time off the tick, for a writer that owns a file or a
+    // connection. The owner shuts it down, whatever is left is stopped on shutdown.
+    ScheduledExecutorService newWorker(String name);
+    
+    // A background thread for a loop that runs until its owner stops it
+    Thread startThread(String name, Runnable task);
+    
+    // Called once on disable, after the owners have closed their workers. Async tasks still
+    // running are left to finish, workers and threads still running are interrupted.
+    void shutdown();
+    
+    interface Task {
+        
+        void cancel();
+    }
+}
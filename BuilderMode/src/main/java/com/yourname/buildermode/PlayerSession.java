@@ -0,0 +1,194 @@
+package com.yourname.buildermode;
+
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+public final class PlayerSession {
+    
+    private static final AtomicReferenceFieldUpdater<PlayerSession, Activation> ACTIVATION =
+        AtomicReferenceFieldUpdater.newUpdater(PlayerSession.class, Activation.class, "activation");
+    
+    private final UUID uuid;
+    // Offsets periodic checks so sessions started on the same tick don't run them together
+    private final int phase = ThreadLocalRandom.current().nextInt(1 << 16);
+    // State and the values it guards are swapped together so a transition is a single CAS
+    private volatile Activation activation = Activation.NONE;
+    private volatile ExpiryWheel.Timeout expiryTask;
+    private volatile boolean elytraWarned;
+    // Chunk area granted over time for the session ledger, guarded by this
+    private int grantedDistance;
+    private long grantedArea;
+    private long grantedSince;
+    private long chunkMillis;
+    
+    PlayerSession(UUID uuid) {
+        this.uuid = uuid;
+    }
+    
+    public UUID getUniqueId() {
+        return uuid;
+    }
+    
+    public int getPhase() {
+        return phase;
+    }
+    
+    public SessionState getState() {
+        return activation.state;
+    }
+    
+    public boolean isActive() {
+        return activation.state == SessionState.ACTIVE;
+    }
+    
+    public Activation getActivation() {
+        return activation;
+    }
+    
+    // Returns false if the session was already active
+    public boolean activate(Player player, DistanceMode mode, int originalDistance, World world, long expirationTime) {
+        long now = System.currentTimeMillis();
+        Activation next = new Activation(SessionState.ACTIVE, player, mode, originalDistance, world, now, expirationTime);
+        
+        while (true) {
+            Activation current = activation;
+            if (current.state == SessionState.ACTIVE) {
+                return false;
+            }
+            if (ACTIVATION.compareAndSet(this, current, next)) {
+                resetGranted(now);
+                return true;
+            }
+        }
+    }
+    
+    // Returns the activation that was ended, or null if the session was not active
+    public Activation deactivate(SessionState endState) {
+        Activation ended = new Activation(endState, null, null, 0, null, 0L, 0L);
+        
+        while (true) {
+            Activation current = activation;
+            if (current.state != SessionState.ACTIVE) {
+                return null;
+            }
+            if (ACTIVATION.compareAndSet(this, current, ended)) {
+                return current;
+            }
+        }
+    }
+    
+    // Moves the end of this activation, false if it has ended or been replaced meanwhile
+    public boolean extend(Activation current, long expirationTime) {
+        if (current.state != SessionState.ACTIVE) {
+            return false;
+        }
+        
+        Activation next = new Activation(SessionState.ACTIVE, current.player, current.mode, current.originalDistance, current.world, current.startTime, expirationTime);
+        return ACTIVATION.compareAndSet(this, current, next);
+    }
+    
+    private synchronized void resetGranted(long now) {
+        grantedDistance = 0;
+        grantedArea = 0L;
+        grantedSince = now;
+        chunkMillis = 0L;
+    }
+    
+    // Called whenever the distance of an active session is applied
+    public synchronized void granted(int distance, long now) {
+        chunkMillis += grantedArea * (now - grantedSince);
+        grantedDistance = distance;
+        grantedArea = ChunkBudget.cost(distance);
+        grantedSince = now;
+    }
+    
+    // The last distance applied while the session was active
+    public synchronized int getGrantedDistance() {
+        return grantedDistance;
+    }
+    
+    // Chunk area times seconds up to now
+    public synchronized long getChunkSeconds(long now) {
+        return (chunkMillis + grantedArea * (now - grantedSince)) / 1000L;
+    }
+    
+    public ExpiryWheel.Timeout getExpiryTask() {
+        return expiryTask;
+    }
+    
+    public void setExpiryTask(ExpiryWheel.Timeout expiryTask) {
+        this.expiryTask = expiryTask;
+    }
+    
+    public boolean isElytraWarned() {
+        return elytraWarned;
+    }
+    
+    public void setElytraWarned(boolean elytraWarned) {
+        this.elytraWarned = elytraWarned;
+    }
+    
+    public static final class Activation {
+        
+        private static final Activation NONE = new Activation(SessionState.INACTIVE, null, null, 0, null, 0L, 0L);
+        
+        private final SessionState state;
+        private final Player player;
+        private final DistanceMode mode;
+        private final int originalDistance;
+        private final World world;
+        private final World.Environment dimension;
+        private final long startTime;
+        private final long expirationTime;
+        
+        private Activation(SessionState state, Player player, DistanceMode mode, int originalDistance, World world, long startTime, long expirationTime) {
+            this.state = state;
+            this.player = player;
+            this.mode = mode;
+            this.originalDistance = originalDistance;
+            this.world = world;
+            this.dimension = world != null ? world.getEnvironment() : null;
+            this.startTime = startTime;
+            this.expirationTime = expirationTime;
+        }
+        
+        public SessionState getState() {
+            return state;
+        }
+        
+        public Player getPlayer() {
+            return player;
+        }
+        
+        // Which distance this activation raised, the original distance is of the same kind
+        public DistanceMode getMode() {
+            return mode;
+        }
+        
+        public int getOriginalDistance() {
+            return originalDistance;
+        }
+        
+        // The world the session started in, sessions end when their player leaves it
+        public World getWorld() {
+            return world;
+        }
+        
+        public World.Environment getDimension() {
+            return dimension;
+        }
+        
+        // When this activation started, a resumed session starts again when it is resumed
+        public long getStartTime() {
+            return startTime;
+        }
+        
+        public long getExpirationTime() {
+            return expirationTime;
+        }
+    }
+}
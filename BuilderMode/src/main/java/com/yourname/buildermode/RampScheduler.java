@@ -0,0 +1,164 @@
+package com.yourname.buildermode;
+
+import org.bukkit.entity.Player;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Moves render distances one ring at a time instead of in a single jump, so activating
+// players don't request their whole new chunk area at once. One shared tick drives every
+// ramp, and each step runs on the thread that owns the player.
+public class RampScheduler {
+    
+    private final PlatformScheduler scheduler;
+    private final ConfigManager configManager;
+    private final Applier applier;
+    private final Map<Player, Ramp> ramps = new ConcurrentHashMap<>();
+    private long tick;
+    
+    public RampScheduler(BuilderMode plugin, ConfigManager configManager, Applier applier) {
+        this.scheduler = plugin.getPlatformScheduler();
+        this.configManager = configManager;
+        this.applier = applier;
+    }
+    
+    // Moves the player towards the target, immediately if ramping is disabled
+    public void rampTo(Player player, DistanceMode mode, int target) {
+        // A ramp of the other distance is finished first, the two are tracked separately
+        Ramp existing = ramps.get(player);
+        if (existing != null && existing.mode != mode && ramps.remove(player, existing) && existing.current != existing.target) {
+            applier.apply(player, existing.mode, existing.target);
+        }
+        
+        if (!configManager.isRampEnabled()) {
+            ramps.remove(player);
+            applier.apply(player, mode, target);
+            return;
+        }
+        
+        // A ramp already in progress just changes direction from where it is now
+        Ramp ramp = ramps.computeIfAbsent(player, (key) -> new Ramp(player, mode, mode.get(player)));
+        ramp.target = target;
+        if (ramp.current == target) {
+            finish(ramp);
+        }
+    }
+    
+    // Stops any ramp without touching the player's distance
+    public void cancel(Player player) {
+        ramps.remove(player);
+    }
+    
+    // Jumps every player straight to their target, used when the plugin shuts down
+    public void finishAll() {
+        for (Ramp ramp : ramps.values()) {
+            if (ramp.player.isOnline() && ramp.current != ramp.target) {
+                applier.apply(ramp.player, ramp.mode, ramp.target);
+            }
+        }
+        ramps.clear();
+    }
+    
+    public boolean isRamping(Player player) {
+        return ramps.containsKey(player);
+    }
+    
+    public boolean isIdle() {
+        return ramps.isEmpty();
+    }
+    
+    public boolean isRamping(Player player, DistanceMode mode) {
+        Ramp ramp = ramps.get(player);
+        return ramp != null && ramp.mode == mode;
+    }
+    
+    public int getCurrent(Player player, DistanceMode mode) {
+        Ramp ramp = ramps.get(player);
+        return ramp != null && ramp.mode == mode ? ramp.current : mode.get(player);
+    }
+    
+    // Where the player is heading, or their current distance if they are not ramping
+    public int getTarget(Player player, DistanceMode mode) {
+        Ramp ramp = ramps.get(player);
+        return ramp != null && ramp.mode == mode ? ramp.target : mode.get(player);
+    }
+    
+    // Must only be called from one thread, once per tick
+    public void tick() {
+        long now = ++tick;
+        if (ramps.isEmpty()) {
+            return;
+        }
+        
+        long interval = configManager.getRampStepInterval();
+        Iterator<Ramp> iterator = ramps.values().iterator();
+        while (iterator.hasNext()) {
+            Ramp ramp = iterator.next();
+            if (ramp.stepping || now < ramp.nextStep) {
+                continue;
+            }
+            
+            ramp.stepping = true;
+            ramp.nextStep = now + interval;
+            dispatch(ramp);
+        }
+    }
+    
+    private void dispatch(Ramp ramp) {
+        scheduler.dispatch(ramp.player, (player) -> {
+            step(ramp);
+        }, () -> {
+            ramps.remove(ramp.player, ramp);
+        });
+    }
+    
+    private void step(Ramp ramp) {
+        ramp.stepping = false;
+        
+        if (!ramp.player.isOnline()) {
+            ramps.remove(ramp.player, ramp);
+            return;
+        }
+        
+        int target = ramp.target;
+        int current = ramp.current;
+        if (current != target) {
+            current += Integer.signum(target - current);
+            ramp.current = current;
+            applier.apply(ramp.player, ramp.mode, current);
+        }
+        
+        if (current == target) {
+            finish(ramp);
+        }
+    }
+    
+    private void finish(Ramp ramp) {
+        // Only remove the ramp if it wasn't retargeted meanwhile
+        ramps.computeIfPresent(ramp.player, (player, existing) -> existing.current == existing.target ? null : existing);
+    }
+    
+    public interface Applier {
+        void apply(Player player, DistanceMode mode, int distance);
+    }
+    
+    private static final class Ramp {
+        
+        private final Player player;
+        private final DistanceMode mode;
+        private volatile int current;
+        private volatile int target;
+        private volatile boolean stepping;
+        
+        // Only touched by the ticking thread
+        private long nextStep;
+        
+        private Ramp(Player player, DistanceMode mode, int current) {
+            this.player = player;
+            this.mode = mode;
+            this.current = current;
+            this.target = current;
+        }
+    }
+}
@@ -0,0 +1,248 @@
+package com.yourname.buildermode;
+
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerChangedWorldEvent;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.function.Consumer;
+
+// Resets the render distance of players not using BuilderMode. Players are only verified
+// once they are marked dirty (join, world change, or the periodic safety sweep), and at
+// most safety-check-budget of them are verified per tick. Each sweep only marks the next
+// safety-check-sweep-size players, so its cost doesn't grow with the player count. Nothing
+// runs per tick unless players are waiting to be verified.
+public class RenderDistanceGuard implements Listener {
+    
+    private final BuilderMode plugin;
+    private final ConfigManager configManager;
+    private final RenderDistanceManager renderDistanceManager;
+    private final CheckScheduler checkScheduler;
+    private final PlatformScheduler scheduler;
+    private final ConcurrentHashMap<UUID, TrackedPlayer> tracked = new ConcurrentHashMap<>();
+    private final Queue<TrackedPlayer> dirty = new ConcurrentLinkedQueue<>();
+    private final Consumer<Player> verifier;
+    // Where the last sweep stopped, only touched by the sweep task
+    private Iterator<TrackedPlayer> sweepCursor;
+    private PlatformScheduler.Task sweepTask;
+    // Guarded by this, only exists while players are dirty
+    private PlatformScheduler.Task drainTask;
+    
+    // Stats for the sweep in progress
+    private final AtomicInteger checkedCount = new AtomicInteger();
+    private final AtomicInteger resetCount = new AtomicInteger();
+    private final AtomicInteger externalCount = new AtomicInteger();
+    private boolean sweepRunning;
+    private long sweepTicks;
+    
+    public RenderDistanceGuard(BuilderMode plugin, ConfigManager configManager, RenderDistanceManager renderDistanceManager, CheckScheduler checkScheduler) {
+        this.plugin = plugin;
+        this.configManager = configManager;
+        this.renderDistanceManager = renderDistanceManager;
+        this.checkScheduler = checkScheduler;
+        this.scheduler = plugin.getPlatformScheduler();
+        this.verifier = plugin.getMetrics().timer("safety-check").time(this::verify);
+        
+        // Players already online when the plugin is enabled
+        for (Player player : plugin.getServer().getOnlinePlayers()) {
+            track(player);
+        }
+        
+        if (configManager.isVerboseEnabled()) {
+            plugin.getLogger().info("Starting safety check with interval: " + configManager.getSafetyCheckInterval() + " seconds");
+        }
+        
+        rescheduleSweep();
+    }
+    
+    // Picks up a new safety-check-interval after a reload
+    public void rescheduleSweep() {
+        if (sweepTask != null) {
+            sweepTask.cancel();
+            sweepTask = null;
+        }
+        long interval = configManager.getSafetyCheckInterval() * 20L; // Convert seconds to ticks
+        if (interval > 0) {
+            sweepTask = scheduler.runGlobalTimer(this::startSweep, interval, interval);
+        }
+    }
+    
+    // Records a distance the plugin itself set, anything else is an external change
+    public void applied(Player player, DistanceMode mode, int distance) {
+        TrackedPlayer trackedPlayer = tracked.get(player.getUniqueId());
+        if (trackedPlayer != null) {
+            trackedPlayer.lastApplied.set(mode.ordinal(), distance);
+        }
+    }
+    
+    public void markDirty(Player player) {
+        TrackedPlayer trackedPlayer = tracked.get(player.getUniqueId());
+        if (trackedPlayer != null) {
+            markDirty(trackedPlayer);
+        }
+    }
+    
+    private void markDirty(TrackedPlayer trackedPlayer) {
+        if (trackedPlayer.dirty.compareAndSet(false, true)) {
+            dirty.add(trackedPlayer);
+            startDrain();
+        }
+    }
+    
+    private synchronized void startDrain() {
+        if (drainTask == null) {
+            drainTask = scheduler.runGlobalTimer(this::drain, 1L, 1L);
+        }
+    }
+    
+    private void track(Player player) {
+        TrackedPlayer trackedPlayer = new TrackedPlayer(player);
+        tracked.put(player.getUniqueId(), trackedPlayer);
+        markDirty(trackedPlayer);
+    }
+    
+    private void drain() {
+        if (sweepRunning) {
+            sweepTicks++;
+        }
+        
+        int budget = configManager.getSafetyCheckBudget();
+        TrackedPlayer trackedPlayer;
+        while (budget-- > 0 && (trackedPlayer = dirty.poll()) != null) {
+            // Cleared before the check so a change during it marks the player again
+            trackedPlayer.dirty.set(false);
+            checkScheduler.dispatch(trackedPlayer.player, verifier);
+        }
+        
+        if (!dirty.isEmpty()) {
+            return;
+        }
+        if (sweepRunning) {
+            finishSweep();
+        }
+        
+        // A player marked after this check starts a new drain
+        synchronized (this) {
+            if (drainTask != null && dirty.isEmpty()) {
+                drainTask.cancel();
+                drainTask = null;
+            }
+        }
+    }
+    
+    private void startSweep() {
+        // Still working through the last one
+        if (sweepRunning) {
+            return;
+        }
+        
+        sweepRunning = true;
+        sweepTicks = 0;
+        checkedCount.set(0);
+        resetCount.set(0);
+        externalCount.set(0);
+        
+        // Players who joined since the cursor passed are picked up on its next round
+        int size = configManager.getSafetyCheckSweepSize();
+        int remaining = size > 0 ? Math.min(size, tracked.size()) : tracked.size();
+        boolean restarted = false;
+        while (remaining > 0) {
+            if (sweepCursor == null || !sweepCursor.hasNext()) {
+                if (restarted) {
+                    break;
+                }
+                sweepCursor = tracked.values().iterator();
+                restarted = true;
+                continue;
+            }
+            markDirty(sweepCursor.next());
+            remaining--;
+        }
+        
+        // The drain finishes the sweep, also one that found nobody to check
+        startDrain();
+    }
+    
+    private void finishSweep() {
+        sweepRunning = false;
+        plugin.getEventLog().record(EventCategory.SAFETY_CHECK, checkedCount.get(), resetCount.get(), externalCount.get(), Math.max(1L, sweepTicks));
+    }
+    
+    private void verify(Player player) {
+        TrackedPlayer trackedPlayer = tracked.get(player.getUniqueId());
+        if (trackedPlayer == null || !player.isOnline()) {
+            return;
+        }
+        
+        checkedCount.incrementAndGet();
+        
+        // A session only owns the distance it raised, the other one stays pinned
+        DistanceMode raised = renderDistanceManager.getActiveMode(player);
+        for (DistanceMode mode : DistanceMode.values()) {
+            // Players ramping down are still on their way back to their own distance
+            if (mode != raised && !renderDistanceManager.isRamping(player, mode)) {
+                verify(player, trackedPlayer, mode);
+            }
+        }
+    }
+    
+    private void verify(Player player, TrackedPlayer trackedPlayer, DistanceMode mode) {
+        int lastApplied = trackedPlayer.lastApplied.get(mode.ordinal());
+        // The send distance is left to the server until BuilderMode has changed it
+        if (mode == DistanceMode.SEND && lastApplied == -1) {
+            return;
+        }
+        
+        int currentDistance = mode.get(player);
+        if (lastApplied != -1 && currentDistance != lastApplied) {
+            externalCount.incrementAndGet();
+        }
+        
+        int defaultDistance = renderDistanceManager.getDefaultDistance(player, mode);
+        if (currentDistance != defaultDistance) {
+            mode.set(player, defaultDistance);
+            trackedPlayer.lastApplied.set(mode.ordinal(), defaultDistance);
+            resetCount.incrementAndGet();
+        }
+    }
+    
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerJoin(PlayerJoinEvent event) {
+        track(event.getPlayer());
+    }
+    
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerChangedWorld(PlayerChangedWorldEvent event) {
+        markDirty(event.getPlayer());
+    }
+    
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerQuit(PlayerQuitEvent event) {
+        tracked.remove(event.getPlayer().getUniqueId());
+    }
+    
+    private static final class TrackedPlayer {
+        
+        private final Player player;
+        private final AtomicBoolean dirty = new AtomicBoolean();
+        private final AtomicIntegerArray lastApplied = new AtomicIntegerArray(DistanceMode.values().length);
+        
+        private TrackedPlayer(Player player) {
+            this.player = player;
+            for (int i = 0; i < lastApplied.length(); i++) {
+                lastApplied.set(i, -1);
+            }
+        }
+    }
+}
@@ -1,220 +1,627 @@
 package com.yourname.buildermode;
 
-import io.papermc.paper.threadedregions.scheduler.ScheduledTask;
 import org.bukkit.World;
 import org.bukkit.entity.Player;
-import org.bukkit.scheduler.BukkitTask;
 
-import java.util.HashMap;
+import java.util.Locale;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
 
-public class RenderDistanceManager {
+public class RenderDistanceManager implements SessionRegistry.ActivityListener {
     
     private final BuilderMode plugin;
     private final ConfigManager configManager;
-    private final Map<UUID, Integer> originalRenderDistances = new HashMap<>();
-    private final Map<UUID, World.Environment> lastKnownDimension = new HashMap<>();
-    private final Map<UUID, Object> activeTasks = new HashMap<>();
-    private final Map<UUID, Long> expirationTimes = new HashMap<>();
-    private final boolean isFolia;
+    private final SessionStore store;
+    private final SessionLedger ledger;
+    private final ChunkBudget budget;
+    private final SessionRegistry sessions = new SessionRegistry();
+    // Kept apart from the sessions so only players still on cooldown take up memory
+    private final CooldownTable cooldowns = new CooldownTable();
+    // Sessions restored from the store, waiting for their player to come back
+    private final Map<UUID, SessionStore.StoredSession> pendingResume = new ConcurrentHashMap<>();
+    private final ExpiryWheel expiryWheel = new ExpiryWheel(this::onExpired);
+    private final RampScheduler ramps;
+    private final ChunkPrewarmer prewarmer;
+    private final PlatformScheduler scheduler;
+    // Guarded by this. Runs while a session is active and until the ramps and prewarms
+    // the last one left behind are done, then stops itself.
+    private PlatformScheduler.Task ticker;
     
-    public RenderDistanceManager(BuilderMode plugin, ConfigManager configManager) {
+    private final LongAdder activatedCount;
+    private final LongAdder resumedCount;
+    private final LongAdder expiredCount;
+    private final LongAdder dimensionDisableCount;
+    private final LongAdder logoutDisableCount;
+    private final Consumer<Player> dimensionChecker;
+    
+    public RenderDistanceManager(BuilderMode plugin, ConfigManager configManager, SessionStore store, ChunkBudget budget) {
         this.plugin = plugin;
         this.configManager = configManager;
-        this.isFolia = checkFolia();
+        this.store = store;
+        this.ledger = plugin.getSessionLedger();
+        this.budget = budget;
+        this.scheduler = plugin.getPlatformScheduler();
+        this.ramps = new RampScheduler(plugin, configManager, this::applyDistance);
+        this.prewarmer = new ChunkPrewarmer(plugin, configManager);
+        
+        MetricsRegistry metrics = plugin.getMetrics();
+        this.activatedCount = metrics.counter("sessions.activated");
+        this.resumedCount = metrics.counter("sessions.resumed");
+        this.expiredCount = metrics.counter("sessions.expired");
+        this.dimensionDisableCount = metrics.counter("sessions.disabled.dimension");
+        this.logoutDisableCount = metrics.counter("sessions.disabled.logout");
+        this.dimensionChecker = metrics.timer("dimension-check").time(this::checkDimensionChange);
+        registerGauges(metrics);
         
-        // Start dimension change checker
-        startDimensionChecker();
+        // One task drives every session's expiry and ramp instead of tasks per player
+        sessions.addActivityListener(this);
     }
     
-    private boolean checkFolia() {
-        try {
-            Class.forName("io.papermc.paper.threadedregions.scheduler.ScheduledTask");
-            return true;
-        } catch (ClassNotFoundException e) {
-            return false;
+    @Override
+    public void onFirstStarted() {
+        startTicker();
+    }
+    
+    @Override
+    public void onLastEnded() {
+        // The ticker stops itself once the ramps down are finished
+    }
+    
+    private void registerGauges(MetricsRegistry metrics) {
+        metrics.gauge("sessions.active", sessions::activeCount);
+        metrics.gauge("sessions.chunks", () -> getGrantedChunks(null));
+        
+        for (World.Environment environment : World.Environment.values()) {
+            String name = environment.name().toLowerCase(Locale.ROOT);
+            metrics.gauge("sessions.active." + name, () -> countActive(environment));
+            metrics.gauge("sessions.chunks." + name, () -> getGrantedChunks(environment));
         }
     }
     
-    private void startDimensionChecker() {
-        // Check for dimension changes every second (20 ticks)
-        if (isFolia) {
-            plugin.getServer().getGlobalRegionScheduler().runAtFixedRate(plugin, (task) -> {
-                checkDimensionChanges();
-            }, 20L, 20L);
-        } else {
-            plugin.getServer().getScheduler().runTaskTimer(plugin, () -> {
-                checkDimensionChanges();
-            }, 20L, 20L);
+    private long countActive(World.Environment environment) {
+        long count = 0;
+        for (PlayerSession session : sessions.active()) {
+            if (session.getActivation().getDimension() == environment) {
+                count++;
+            }
         }
+        return count;
     }
     
-    private void checkDimensionChanges() {
-        for (UUID uuid : new HashMap<>(originalRenderDistances).keySet()) {
-            Player player = plugin.getServer().getPlayer(uuid);
-            if (player != null && player.isOnline()) {
-                World.Environment currentDim = player.getWorld().getEnvironment();
-                World.Environment lastDim = lastKnownDimension.get(uuid);
-                
-                if (lastDim != null && lastDim != currentDim) {
-                    if (configManager.isVerboseEnabled()) {
-                        plugin.getLogger().info("Detected dimension change for " + player.getName() + 
-                            " from " + lastDim + " to " + currentDim + ". Disabling BuilderMode.");
-                    }
-                    disableOnDimensionChange(player);
-                }
+    // Chunk area covered by the distances currently granted, for every dimension if null.
+    // Read by JMX and /bm stats from any thread, so only the sessions' own state is used.
+    private long getGrantedChunks(World.Environment environment) {
+        long chunks = 0;
+        for (PlayerSession session : sessions.active()) {
+            World.Environment dimension = session.getActivation().getDimension();
+            int granted = session.getGrantedDistance();
+            if (dimension != null && granted > 0 && (environment == null || dimension == environment)) {
+                chunks += ChunkBudget.cost(granted);
+            }
+        }
+        return chunks;
+    }
+    
+    private synchronized void startTicker() {
+        if (ticker == null) {
+            ticker = scheduler.runGlobalTimer(this::tick, 1L, 1L);
+        }
+    }
+    
+    private void tick() {
+        expiryWheel.advance();
+        ramps.tick();
+        prewarmer.tick();
+        
+        // A session starting or a ramp added after this check starts a new ticker
+        synchronized (this) {
+            if (ticker != null && sessions.activeCount() == 0 && ramps.isIdle() && prewarmer.isIdle()) {
+                ticker.cancel();
+                ticker = null;
             }
         }
     }
     
-    public void enable(Player player) {
-        if (isActive(player)) {
+    // A ramp down can outlive the last session, so make sure something steps it
+    private void rampTo(Player player, DistanceMode mode, int target) {
+        ramps.rampTo(player, mode, target);
+        if (ramps.isRamping(player)) {
+            startTicker();
+        }
+    }
+    
+    private void onExpired(ExpiryWheel.Timeout timeout) {
+        Player player = timeout.getPlayer();
+        
+        // Expire on the thread that owns the player
+        scheduler.dispatch(player, (target) -> {
+            expire(target, timeout);
+        }, null);
+    }
+    
+    private void expire(Player player, ExpiryWheel.Timeout timeout) {
+        PlayerSession session = sessions.get(player.getUniqueId());
+        
+        // Ignore a timeout left over from an earlier activation
+        if (session != null && session.getExpiryTask() == timeout) {
+            expiredCount.increment();
+            disable(player, SessionLedger.EndReason.EXPIRED);
+        }
+    }
+    
+    // Dimension changes are caught by the teleport and world change events. This only
+    // re-checks active sessions when an event may have been missed, e.g. after a reload
+    // or a portal respawn, and runs a tick later so the new world is already applied.
+    public void reconcileDimensions() {
+        for (PlayerSession session : sessions.active()) {
+            Player player = session.getActivation().getPlayer();
+            if (player != null) {
+                reconcileDimension(player);
+            }
+        }
+    }
+    
+    public void reconcileDimension(Player player) {
+        scheduler.runAtEntity(player, () -> {
+            dimensionChecker.accept(player);
+        }, null);
+    }
+    
+    private void checkDimensionChange(Player player) {
+        PlayerSession session = sessions.getActive(player);
+        if (session == null) {
             return;
         }
         
-        int currentDistance = player.getViewDistance();
-        originalRenderDistances.put(player.getUniqueId(), currentDistance);
+        PlayerSession.Activation activation = session.getActivation();
+        if (activation.getState() != SessionState.ACTIVE || !player.isOnline()) {
+            return;
+        }
         
-        // Track the dimension they activated in
-        lastKnownDimension.put(player.getUniqueId(), player.getWorld().getEnvironment());
+        World.Environment currentDim = player.getWorld().getEnvironment();
+        World.Environment lastDim = activation.getDimension();
         
-        int newDistance = configManager.getRenderDistance(player.getWorld().getEnvironment());
-        player.setViewDistance(newDistance);
+        if (lastDim != currentDim) {
+            plugin.getEventLog().record(EventCategory.DIMENSION_CHECK, player, lastDim, currentDim, 0L);
+            disableOnDimensionChange(player);
+        }
+    }
+    
+    // The caller must already hold a reservation in the chunk budget
+    public boolean enable(Player player) {
+        PlayerSession session = sessions.getOrCreate(player.getUniqueId());
+        World world = player.getWorld();
         
-        int duration = configManager.getDuration(player.getWorld().getEnvironment());
+        int duration = configManager.getDuration(world);
         long expirationTime = System.currentTimeMillis() + (duration * 1000L);
-        expirationTimes.put(player.getUniqueId(), expirationTime);
+        DistanceMode mode = configManager.getDistanceMode(world);
         
-        if (isFolia) {
-            scheduleFoliaTask(player, duration);
-        } else {
-            scheduleBukkitTask(player, duration);
+        // Refuse before anything changes if the area would mostly have to be generated
+        ChunkPrewarmer.Plan plan = prewarmer.plan(player, ramps.getCurrent(player, mode), getAllowedDistance(world));
+        if (plan.isMostlyUngenerated() && configManager.isPrewarmRefuseUngenerated()) {
+            player.sendMessage(configManager.getMessage("prewarm-refused"));
+            return false;
+        }
+        
+        // Remember the original distance and the world they activated in. If they are
+        // still ramping down from an earlier session, the original is where that ramp ends.
+        int originalDistance = ramps.getTarget(player, mode);
+        if (!session.activate(player, mode, originalDistance, world, expirationTime)) {
+            return false;
         }
+        sessions.track(player, session);
+        store.recordSession(player.getUniqueId(), mode, originalDistance, world, expirationTime);
+        
+        raiseWhenReady(player, session, plan);
+        activatedCount.increment();
+        
+        session.setExpiryTask(expiryWheel.schedule(player, duration * 20L));
+        return true;
     }
     
-    private void scheduleFoliaTask(Player player, int duration) {
-        ScheduledTask task = player.getScheduler().runDelayed(plugin, (t) -> {
-            disable(player);
-        }, null, duration * 20L);
+    // Loads cooldowns and interrupted sessions saved by the store
+    public void restore() {
+        long maxCooldown = configManager.getMaxCooldown();
+        for (Map.Entry<UUID, Long> entry : store.getCooldowns().entrySet()) {
+            cooldowns.put(entry.getKey(), entry.getValue(), maxCooldown);
+        }
+        pendingResume.putAll(store.getSessions());
         
-        activeTasks.put(player.getUniqueId(), task);
+        // Players still online after a plugin reload
+        for (Player player : plugin.getServer().getOnlinePlayers()) {
+            loadCooldown(player.getUniqueId());
+            resume(player);
+        }
     }
     
-    private void scheduleBukkitTask(Player player, int duration) {
-        BukkitTask task = plugin.getServer().getScheduler().runTaskLater(plugin, () -> {
-            disable(player);
-        }, duration * 20L);
-        
-        activeTasks.put(player.getUniqueId(), task);
+    // Merges the stored cooldown into the table once the store has it. Until then the table
+    // answers on its own, so a player may briefly see a cooldown from another server late.
+    public void loadCooldown(UUID uuid) {
+        store.loadCooldown(uuid).thenAccept((lastUsed) -> {
+            long maxCooldown = configManager.getMaxCooldown();
+            if (System.currentTimeMillis() - lastUsed < maxCooldown) {
+                cooldowns.putIfNewer(uuid, lastUsed, maxCooldown);
+            }
+        });
     }
     
-    public void disable(Player player) {
-        UUID uuid = player.getUniqueId();
+    public void resume(Player player) {
+        SessionStore.StoredSession stored = pendingResume.remove(player.getUniqueId());
+        if (stored == null) {
+            return;
+        }
+        
+        long now = System.currentTimeMillis();
+        long remaining = stored.getRemaining(now);
+        World world = player.getWorld();
         
-        if (!originalRenderDistances.containsKey(uuid)) {
+        // Too late, or they came back in another world. Its settings may differ even if the
+        // dimension is the same.
+        boolean expired = stored.isPaused() && now - stored.getPausedAt() > configManager.getPersistenceResumeWindow();
+        if (expired || remaining < 1000L || !stored.isIn(world)) {
+            store.recordEnd(player.getUniqueId());
             return;
         }
         
-        Object task = activeTasks.remove(uuid);
-        if (task != null) {
-            if (isFolia && task instanceof ScheduledTask) {
-                ((ScheduledTask) task).cancel();
-            } else if (task instanceof BukkitTask) {
-                ((BukkitTask) task).cancel();
+        PlayerSession session = sessions.getOrCreate(player.getUniqueId());
+        long expirationTime = now + remaining;
+        if (!session.activate(player, stored.getMode(), stored.getOriginalDistance(), world, expirationTime)) {
+            return;
+        }
+        sessions.track(player, session);
+        budget.forceAcquire(player);
+        resumedCount.increment();
+        store.recordSession(player.getUniqueId(), stored.getMode(), stored.getOriginalDistance(), world, expirationTime);
+        
+        raiseWhenReady(player, session, prewarmer.plan(player, ramps.getCurrent(player, stored.getMode()), getAllowedDistance(world)));
+        session.setExpiryTask(expiryWheel.schedule(player, remaining / 50L));
+        
+        player.sendMessage(configManager.getTemplate("session-resumed").render(remaining / 1000));
+    }
+    
+    // Raises the distance once the prewarmer has loaded enough of the new area
+    private void raiseWhenReady(Player player, PlayerSession session, ChunkPrewarmer.Plan plan) {
+        PlayerSession.Activation activation = session.getActivation();
+        
+        prewarmer.start(player, plan, () -> {
+            // The session may have ended while its chunks were loading
+            if (session.getActivation() == activation) {
+                rampTo(player, activation.getMode(), getAllowedDistance(player.getWorld()));
             }
+        });
+    }
+    
+    // The configured distance, lowered by the load governor while the server is struggling
+    public int getAllowedDistance(World world) {
+        LoadGovernor governor = plugin.getLoadGovernor();
+        if (governor == null) {
+            return configManager.getRenderDistance(world);
         }
+        return governor.getAllowedDistance(world);
+    }
+    
+    // Moves every active session to the distance currently allowed for its dimension
+    public void applyAllowedDistances(boolean throttled) {
+        String key = throttled ? "throttled" : "unthrottled";
         
-        Integer originalDistance = originalRenderDistances.remove(uuid);
-        lastKnownDimension.remove(uuid);
-        expirationTimes.remove(uuid);
-        plugin.removeElytraWarning(uuid);
+        for (PlayerSession session : sessions.active()) {
+            Player player = session.getActivation().getPlayer();
+            if (player != null) {
+                plugin.getCheckScheduler().dispatch(player, (target) -> {
+                    applyAllowedDistance(target, key);
+                });
+            }
+        }
+    }
+    
+    // Applies a reload to the active sessions: distances move to the new allowed distance,
+    // ramped like any other change, and expiry moves by however much the duration changed
+    public void applyChanges(ConfigManager.Changes changes) {
+        for (PlayerSession session : sessions.active()) {
+            Player player = session.getActivation().getPlayer();
+            if (player == null) {
+                continue;
+            }
+            
+            // Sessions end when their player changes worlds, so the world is the session's
+            plugin.getCheckScheduler().dispatch(player, (target) -> {
+                World world = target.getWorld();
+                boolean distanceChanged = changes.isDistanceChanged(world);
+                int durationDelta = changes.getDurationDelta(world);
+                if (durationDelta != 0) {
+                    applyDurationDelta(target, durationDelta);
+                }
+                if (distanceChanged) {
+                    applyAllowedDistance(target, "distance-updated");
+                }
+            });
+        }
+    }
+    
+    private void applyDurationDelta(Player player, int delta) {
+        PlayerSession session = sessions.getActive(player);
+        if (session == null) {
+            return;
+        }
         
-        if (originalDistance != null) {
-            player.setViewDistance(originalDistance);
-            player.sendMessage(configManager.getMessage("expired"));
+        PlayerSession.Activation activation = session.getActivation();
+        long expirationTime = activation.getExpirationTime() + delta * 1000L;
+        if (!session.extend(activation, expirationTime)) {
+            return;
         }
+        
+        // A shorter duration that has already run out ends the session on the next tick
+        long remaining = Math.max(0L, expirationTime - System.currentTimeMillis());
+        cancelExpiryTask(session);
+        session.setExpiryTask(expiryWheel.schedule(player, remaining / 50L));
+        store.recordSession(player.getUniqueId(), activation.getMode(), activation.getOriginalDistance(), activation.getWorld(), expirationTime);
+        
+        player.sendMessage(configManager.getTemplate("duration-updated").render(remaining / 1000));
     }
     
-    public void disableOnDimensionChange(Player player) {
-        UUID uuid = player.getUniqueId();
+    private void applyAllowedDistance(Player player, String messageKey) {
+        PlayerSession session = sessions.getActive(player);
+        if (session == null) {
+            return;
+        }
         
-        if (!originalRenderDistances.containsKey(uuid)) {
+        PlayerSession.Activation activation = session.getActivation();
+        if (activation.getState() != SessionState.ACTIVE || !player.isOnline()) {
             return;
         }
         
-        Object task = activeTasks.remove(uuid);
-        if (task != null) {
-            if (isFolia && task instanceof ScheduledTask) {
-                ((ScheduledTask) task).cancel();
-            } else if (task instanceof BukkitTask) {
-                ((BukkitTask) task).cancel();
-            }
+        // Sessions still prewarming pick up the allowed distance when they are raised
+        int allowed = getAllowedDistance(player.getWorld());
+        if (prewarmer.isPrewarming(player) || ramps.getTarget(player, activation.getMode()) == allowed) {
+            return;
+        }
+        
+        rampTo(player, activation.getMode(), allowed);
+        player.sendMessage(configManager.getTemplate(messageKey).render(allowed));
+    }
+    
+    public void startCooldown(UUID uuid, long time) {
+        cooldowns.put(uuid, time, configManager.getMaxCooldown());
+        store.recordCooldown(uuid, time);
+    }
+    
+    // Returns when the player last activated BuilderMode, or 0 if they are not on cooldown
+    public long getLastUsed(Player player) {
+        // Picks up an activation on another server for the next time, the table answers now
+        loadCooldown(player.getUniqueId());
+        cooldowns.evictExpired(System.currentTimeMillis(), configManager.getMaxCooldown());
+        return cooldowns.get(player.getUniqueId());
+    }
+    
+    private void applyDistance(Player player, DistanceMode mode, int distance) {
+        mode.set(player, distance);
+        
+        // Chunk-seconds for the session ledger, ramping down after the end doesn't count
+        PlayerSession session = sessions.getActive(player);
+        if (session != null) {
+            session.granted(distance, System.currentTimeMillis());
         }
         
-        originalRenderDistances.remove(uuid);
-        lastKnownDimension.remove(uuid);
-        expirationTimes.remove(uuid);
-        plugin.removeElytraWarning(uuid);
+        // Let the safety check tell our own changes apart from external ones
+        RenderDistanceGuard guard = plugin.getRenderDistanceGuard();
+        if (guard != null) {
+            guard.applied(player, mode, distance);
+        }
+    }
+    
+    private void cancelExpiryTask(PlayerSession session) {
+        ExpiryWheel.Timeout timeout = session.getExpiryTask();
+        session.setExpiryTask(null);
+        
+        if (timeout != null) {
+            timeout.cancel();
+        }
+    }
+    
+    public void disable(Player player) {
+        disable(player, SessionLedger.EndReason.MANUAL);
+    }
+    
+    private void disable(Player player, SessionLedger.EndReason reason) {
+        PlayerSession session = sessions.get(player.getUniqueId());
+        if (session == null) {
+            return;
+        }
+        
+        // Only the caller that wins the transition restores the player
+        PlayerSession.Activation ended = session.deactivate(SessionState.EXPIRED);
+        if (ended == null) {
+            return;
+        }
+        
+        ledger.record(session, ended, reason);
+        sessions.untrack(player);
+        prewarmer.cancel(player);
+        cancelExpiryTask(session);
+        store.recordEnd(player.getUniqueId());
+        sessions.removeIfIdle(player.getUniqueId());
+        budget.release(player);
+        
+        rampTo(player, ended.getMode(), ended.getOriginalDistance());
+        player.sendMessage(configManager.getMessage("expired"));
+    }
+    
+    public void disableOnDimensionChange(Player player) {
+        PlayerSession session = sessions.get(player.getUniqueId());
+        if (session == null) {
+            return;
+        }
+        
+        PlayerSession.Activation ended = session.deactivate(SessionState.COOLDOWN);
+        if (ended == null) {
+            return;
+        }
+        
+        dimensionDisableCount.increment();
+        ledger.record(session, ended, SessionLedger.EndReason.DIMENSION_CHANGE);
+        sessions.untrack(player);
+        prewarmer.cancel(player);
+        cancelExpiryTask(session);
+        store.recordEnd(player.getUniqueId());
+        sessions.removeIfIdle(player.getUniqueId());
+        budget.release(player);
         
         // Set to default render distance for the new dimension
-        int defaultDistance = configManager.getDefaultRenderDistance();
-        player.setViewDistance(defaultDistance);
+        rampTo(player, ended.getMode(), getDefaultDistance(player, ended.getMode()));
         player.sendMessage(configManager.getMessage("dimension-disabled"));
         
         // Start cooldown immediately
-        plugin.setCooldown(uuid);
+        startCooldown(player.getUniqueId(), System.currentTimeMillis());
     }
     
     public void disableOnLogout(Player player) {
-        UUID uuid = player.getUniqueId();
+        ramps.cancel(player);
         
-        if (!originalRenderDistances.containsKey(uuid)) {
+        PlayerSession session = sessions.get(player.getUniqueId());
+        if (session == null) {
             return;
         }
         
-        Object task = activeTasks.remove(uuid);
-        if (task != null) {
-            if (isFolia && task instanceof ScheduledTask) {
-                ((ScheduledTask) task).cancel();
-            } else if (task instanceof BukkitTask) {
-                ((BukkitTask) task).cancel();
-            }
+        // Players who never activated, or only saw the elytra warning, leave nothing behind
+        PlayerSession.Activation ended = session.deactivate(SessionState.COOLDOWN);
+        if (ended == null) {
+            sessions.removeIfIdle(player.getUniqueId());
+            return;
         }
         
-        originalRenderDistances.remove(uuid);
-        lastKnownDimension.remove(uuid);
-        expirationTimes.remove(uuid);
-        plugin.removeElytraWarning(uuid);
+        logoutDisableCount.increment();
+        ledger.record(session, ended, SessionLedger.EndReason.LOGOUT);
+        sessions.untrack(player);
+        prewarmer.cancel(player);
+        cancelExpiryTask(session);
+        store.recordEnd(player.getUniqueId());
+        sessions.removeIfIdle(player.getUniqueId());
+        budget.release(player);
         
         // Start cooldown immediately when logging out
-        plugin.setCooldown(uuid);
+        startCooldown(player.getUniqueId(), System.currentTimeMillis());
     }
     
     public void disableAll() {
-        for (UUID uuid : originalRenderDistances.keySet()) {
-            Player player = plugin.getServer().getPlayer(uuid);
+        for (PlayerSession session : sessions.active()) {
+            Player player = session.getActivation().getPlayer();
             if (player != null && player.isOnline()) {
-                disable(player);
+                disable(player, SessionLedger.EndReason.SHUTDOWN);
+                continue;
+            }
+            
+            PlayerSession.Activation ended = session.deactivate(SessionState.EXPIRED);
+            if (ended != null) {
+                ledger.record(session, ended, SessionLedger.EndReason.SHUTDOWN);
+                if (player != null) {
+                    sessions.untrack(player);
+                    budget.release(player);
+                }
+                cancelExpiryTask(session);
+                sessions.removeIfIdle(session.getUniqueId());
             }
         }
-        originalRenderDistances.clear();
-        lastKnownDimension.clear();
-        activeTasks.clear();
-        expirationTimes.clear();
+        
+        // There's no time left to ramp down
+        prewarmer.cancelAll();
+        ramps.finishAll();
+    }
+    
+    // Ends every session on shutdown but keeps its remaining time in the store
+    public void suspendAll() {
+        long now = System.currentTimeMillis();
+        
+        for (PlayerSession session : sessions.active()) {
+            PlayerSession.Activation ended = session.deactivate(SessionState.EXPIRED);
+            if (ended == null) {
+                continue;
+            }
+            
+            cancelExpiryTask(session);
+            store.recordPause(session.getUniqueId(), Math.max(0L, ended.getExpirationTime() - now));
+            ledger.record(session, ended, SessionLedger.EndReason.SHUTDOWN);
+            
+            Player player = ended.getPlayer();
+            sessions.untrack(player);
+            budget.release(player);
+            ramps.cancel(player);
+            prewarmer.cancel(player);
+            if (player.isOnline()) {
+                ended.getMode().set(player, ended.getOriginalDistance());
+            }
+        }
+        ramps.finishAll();
     }
     
     public boolean isActive(Player player) {
-        return originalRenderDistances.containsKey(player.getUniqueId());
+        return sessions.isActive(player);
+    }
+    
+    public boolean isRamping(Player player) {
+        return ramps.isRamping(player);
+    }
+    
+    public int getCurrentDistance(Player player) {
+        return ramps.getCurrent(player, getDisplayMode(player));
+    }
+    
+    public int getTargetDistance(Player player) {
+        return ramps.getTarget(player, getDisplayMode(player));
+    }
+    
+    // Which distance the player's active session raised, or null if they have none
+    public DistanceMode getActiveMode(Player player) {
+        PlayerSession session = sessions.getActive(player);
+        if (session == null) {
+            return null;
+        }
+        return session.getActivation().getMode();
+    }
+    
+    // The distance BuilderMode is changing for the player, for /bm info
+    private DistanceMode getDisplayMode(Player player) {
+        PlayerSession session = sessions.getActive(player);
+        if (session != null && session.isActive()) {
+            return session.getActivation().getMode();
+        }
+        return ramps.isRamping(player, DistanceMode.SEND) ? DistanceMode.SEND : DistanceMode.VIEW;
+    }
+    
+    // What a player outside BuilderMode should have, the send distance follows the world
+    public int getDefaultDistance(Player player, DistanceMode mode) {
+        if (mode == DistanceMode.SEND) {
+            return player.getWorld().getSendViewDistance();
+        }
+        return configManager.getDefaultRenderDistance();
+    }
+    
+    public boolean isRamping(Player player, DistanceMode mode) {
+        return ramps.isRamping(player, mode);
+    }
+    
+    public PlayerSession getSession(Player player) {
+        return sessions.get(player.getUniqueId());
+    }
+    
+    public SessionRegistry getSessions() {
+        return sessions;
     }
     
     public long getTimeRemaining(Player player) {
-        Long expirationTime = expirationTimes.get(player.getUniqueId());
-        if (expirationTime == null) {
+        PlayerSession session = sessions.get(player.getUniqueId());
+        if (session == null) {
+            return 0;
+        }
+        
+        PlayerSession.Activation activation = session.getActivation();
+        if (activation.getState() != SessionState.ACTIVE) {
             return 0;
         }
         
-        long remaining = (expirationTime - System.currentTimeMillis()) / 1000;
+        long remaining = (activation.getExpirationTime() - System.currentTimeMillis()) / 1000;
         return Math.max(0, remaining);
     }
-}
\ No newline at end of file
+}
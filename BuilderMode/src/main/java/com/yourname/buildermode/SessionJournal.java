@@ -0,0 +1,363 @@
+package com.yourname.buildermode;
+
+import org.bukkit.World;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+// Append-only journal of cooldowns and sessions so they survive a restart. Records are
+// queued by the tick threads and written in batches by a background virtual thread,
+// which also owns the in-memory mirror used for compaction.
+public class SessionJournal implements SessionStore {
+    
+    private static final int MAGIC = 0x424D4A31; // "BMJ1"
+    
+    private static final byte COOLDOWN = 'C';
+    private static final byte SESSION = 'S';
+    private static final byte PAUSE = 'P';
+    private static final byte END = 'E';
+    
+    private final BuilderMode plugin;
+    private final ConfigManager configManager;
+    private final File file;
+    private final Queue<JournalRecord> queue = new ConcurrentLinkedQueue<>();
+    
+    // Mirror of the journal contents, only touched while holding the lock
+    private final Map<UUID, Long> cooldowns = new HashMap<>();
+    private final Map<UUID, StoredSession> sessions = new HashMap<>();
+    private ScheduledExecutorService executor;
+    private ScheduledFuture<?> flushTask;
+    private DataOutputStream out;
+    private int recordsSinceCompaction;
+    
+    public SessionJournal(BuilderMode plugin, ConfigManager configManager) {
+        this.plugin = plugin;
+        this.configManager = configManager;
+        this.file = new File(plugin.getDataFolder(), "sessions.journal");
+    }
+    
+    @Override
+    public boolean isEnabled() {
+        return executor != null;
+    }
+    
+    // Replays the journal, compacts it and starts the writer. Called once on enable.
+    @Override
+    public void open() {
+        if (!configManager.isPersistenceEnabled()) {
+            return;
+        }
+        
+        try {
+            replay();
+            compact();
+        } catch (IOException e) {
+            plugin.getLogger().log(Level.WARNING, "Failed to read " + file.getName() + ", starting with an empty journal", e);
+            cooldowns.clear();
+            sessions.clear();
+        }
+        
+        executor = plugin.getPlatformScheduler().newWorker("BuilderMode-journal");
+        scheduleFlush();
+        
+        if (configManager.isVerboseEnabled()) {
+            plugin.getLogger().info("Loaded " + cooldowns.size() + " cooldown(s) and " + sessions.size() + " session(s) from " + file.getName());
+        }
+    }
+    
+    private void scheduleFlush() {
+        if (flushTask != null) {
+            flushTask.cancel(false);
+        }
+        long interval = configManager.getPersistenceFlushInterval();
+        flushTask = executor.scheduleWithFixedDelay(this::flush, interval, interval, TimeUnit.MILLISECONDS);
+    }
+    
+    // Picks up a new flush interval after a reload, a flush in progress still finishes
+    @Override
+    public void rescheduleFlush() {
+        if (executor != null) {
+            scheduleFlush();
+        }
+    }
+    
+    // Writes everything still queued and stops the writer. Called once on disable.
+    @Override
+    public void close() {
+        if (executor == null) {
+            return;
+        }
+        
+        executor.shutdown();
+        try {
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        executor = null;
+        
+        flush();
+        try {
+            if (out != null) {
+                out.close();
+                out = null;
+            }
+        } catch (IOException e) {
+            plugin.getLogger().log(Level.WARNING, "Failed to close " + file.getName(), e);
+        }
+    }
+    
+    @Override
+    public synchronized Map<UUID, Long> getCooldowns() {
+        return Collections.unmodifiableMap(new HashMap<>(cooldowns));
+    }
+    
+    @Override
+    public synchronized Map<UUID, StoredSession> getSessions() {
+        return Collections.unmodifiableMap(new HashMap<>(sessions));
+    }
+    
+    // Every cooldown in the journal was handed over by getCooldowns on startup
+    @Override
+    public CompletableFuture<Long> loadCooldown(UUID uuid) {
+        return CompletableFuture.completedFuture(0L);
+    }
+    
+    @Override
+    public void recordCooldown(UUID uuid, long lastUsed) {
+        append(new JournalRecord(COOLDOWN, uuid, lastUsed, 0L, 0, null, null, null));
+    }
+    
+    @Override
+    public void recordSession(UUID uuid, DistanceMode mode, int originalDistance, World world, long expirationTime) {
+        append(new JournalRecord(SESSION, uuid, expirationTime, 0L, originalDistance, world.getEnvironment(), world.getUID(), mode));
+    }
+    
+    @Override
+    public void recordPause(UUID uuid, long remaining) {
+        append(new JournalRecord(PAUSE, uuid, remaining, System.currentTimeMillis(), 0, null, null, null));
+    }
+    
+    @Override
+    public void recordEnd(UUID uuid) {
+        append(new JournalRecord(END, uuid, 0L, 0L, 0, null, null, null));
+    }
+    
+    private void append(JournalRecord record) {
+        if (executor != null) {
+            queue.add(record);
+        }
+    }
+    
+    private synchronized void flush() {
+        if (queue.isEmpty()) {
+            return;
+        }
+        
+        try {
+            if (out == null) {
+                out = openForAppend();
+            }
+            
+            JournalRecord record;
+            while ((record = queue.poll()) != null) {
+                write(out, record);
+                apply(record);
+                recordsSinceCompaction++;
+            }
+            out.flush();
+            
+            if (recordsSinceCompaction >= configManager.getPersistenceCompactThreshold()) {
+                out.close();
+                out = null;
+                compact();
+            }
+        } catch (IOException e) {
+            plugin.getLogger().log(Level.WARNING, "Failed to write " + file.getName(), e);
+        }
+    }
+    
+    private DataOutputStream openForAppend() throws IOException {
+        boolean exists = file.exists() && file.length() > 0;
+        DataOutputStream stream = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file, true)));
+        if (!exists) {
+            stream.writeInt(MAGIC);
+        }
+        return stream;
+    }
+    
+    private void replay() throws IOException {
+        if (!file.exists()) {
+            return;
+        }
+        
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            int magic = in.readInt();
+            if (magic != MAGIC) {
+                throw new IOException("Not a BuilderMode journal");
+            }
+            
+            while (true) {
+                JournalRecord record;
+                try {
+                    record = read(in);
+                } catch (EOFException e) {
+                    // End of file, or a record cut short by a crash
+                    break;
+                }
+                apply(record);
+            }
+        } catch (EOFException e) {
+            // Empty file
+        }
+    }
+    
+    // Rewrites the journal with only the live state, dropping anything that no longer matters
+    private void compact() throws IOException {
+        long now = System.currentTimeMillis();
+        long maxCooldown = configManager.getMaxCooldown();
+        long resumeWindow = configManager.getPersistenceResumeWindow();
+        
+        cooldowns.values().removeIf(lastUsed -> lastUsed + maxCooldown <= now);
+        Iterator<StoredSession> iterator = sessions.values().iterator();
+        while (iterator.hasNext()) {
+            StoredSession session = iterator.next();
+            if (session.isPaused() ? now - session.getPausedAt() > resumeWindow : session.getExpirationTime() <= now) {
+                iterator.remove();
+            }
+        }
+        
+        File temp = new File(file.getParentFile(), file.getName() + ".tmp");
+        try (DataOutputStream stream = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+            stream.writeInt(MAGIC);
+            for (Map.Entry<UUID, Long> entry : cooldowns.entrySet()) {
+                write(stream, new JournalRecord(COOLDOWN, entry.getKey(), entry.getValue(), 0L, 0, null, null, null));
+            }
+            for (Map.Entry<UUID, StoredSession> entry : sessions.entrySet()) {
+                StoredSession session = entry.getValue();
+                write(stream, new JournalRecord(SESSION, entry.getKey(), session.getExpirationTime(), 0L, session.getOriginalDistance(), session.getDimension(), session.getWorld(), session.getMode()));
+                if (session.isPaused()) {
+                    write(stream, new JournalRecord(PAUSE, entry.getKey(), session.getRemainingAtPause(), session.getPausedAt(), 0, null, null, null));
+                }
+            }
+        }
+        
+        Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        recordsSinceCompaction = 0;
+    }
+    
+    private void apply(JournalRecord record) {
+        switch (record.type) {
+            case COOLDOWN:
+                cooldowns.put(record.uuid, record.value);
+                break;
+            case SESSION:
+                sessions.put(record.uuid, new StoredSession(record.mode, record.distance, record.dimension, record.world, record.value, -1L, 0L));
+                break;
+            case PAUSE:
+                StoredSession session = sessions.get(record.uuid);
+                if (session != null) {
+                    sessions.put(record.uuid, new StoredSession(session.getMode(), session.getOriginalDistance(), session.getDimension(), session.getWorld(), session.getExpirationTime(), record.value, record.time));
+                }
+                break;
+            case END:
+                sessions.remove(record.uuid);
+                break;
+            default:
+                break;
+        }
+    }
+    
+    private static void write(DataOutputStream stream, JournalRecord record) throws IOException {
+        stream.writeByte(record.type);
+        stream.writeLong(record.uuid.getMostSignificantBits());
+        stream.writeLong(record.uuid.getLeastSignificantBits());
+        
+        switch (record.type) {
+            case COOLDOWN:
+                stream.writeLong(record.value);
+                break;
+            case SESSION:
+                stream.writeLong(record.value);
+                stream.writeShort(record.distance);
+                stream.writeByte(record.dimension.ordinal());
+                stream.writeByte(record.mode.ordinal());
+                stream.writeLong(record.world.getMostSignificantBits());
+                stream.writeLong(record.world.getLeastSignificantBits());
+                break;
+            case PAUSE:
+                stream.writeLong(record.value);
+                stream.writeLong(record.time);
+                break;
+            default:
+                break;
+        }
+    }
+    
+    private static JournalRecord read(DataInputStream stream) throws IOException {
+        byte type = stream.readByte();
+        UUID uuid = new UUID(stream.readLong(), stream.readLong());
+        
+        switch (type) {
+            case COOLDOWN:
+                return new JournalRecord(type, uuid, stream.readLong(), 0L, 0, null, null, null);
+            case SESSION:
+                long expirationTime = stream.readLong();
+                int distance = stream.readShort();
+                World.Environment dimension = World.Environment.values()[stream.readByte()];
+                DistanceMode mode = DistanceMode.values()[stream.readByte()];
+                UUID world = new UUID(stream.readLong(), stream.readLong());
+                return new JournalRecord(type, uuid, expirationTime, 0L, distance, dimension, world, mode);
+            case PAUSE:
+                return new JournalRecord(type, uuid, stream.readLong(), stream.readLong(), 0, null, null, null);
+            case END:
+                return new JournalRecord(type, uuid, 0L, 0L, 0, null, null, null);
+            default:
+                throw new IOException("Unknown journal record type " + type);
+        }
+    }
+    
+    private static final class JournalRecord {
+        
+        private final byte type;
+        private final UUID uuid;
+        private final long value;
+        private final long time;
+        private final int distance;
+        private final World.Environment dimension;
+        private final UUID world;
+        private final DistanceMode mode;
+        
+        private JournalRecord(byte type, UUID uuid, long value, long time, int distance, World.Environment dimension, UUID world, DistanceMode mode) {
+            this.type = type;
+            this.uuid = uuid;
+            this.value = value;
+            this.time = time;
+            this.distance = distance;
+            this.dimension = dimension;
+            this.world = world;
+            this.mode = mode;
+        }
+    }
+}
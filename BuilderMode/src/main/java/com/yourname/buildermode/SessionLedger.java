@@ -0,0 +1,336 @@
+package com.yourname.buildermode;
+
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+// One record per ended session for capacity planning: player, world, distance, how long it
+// ran, why it ended and the chunk area it was granted times seconds. Records are queued and
+// appended by a background thread to one gzip file per hour in ledger/. Every flush appends
+// a gzip member of its own, so a file can be read at any time. Files past the retention are
+// deleted, /bm ledger adds up the last hours from what is left.
+public class SessionLedger {
+    
+    private static final long HOUR = TimeUnit.HOURS.toMillis(1);
+    private static final String SUFFIX = ".tsv.gz";
+    
+    public enum EndReason {
+        EXPIRED,
+        MANUAL,
+        DIMENSION_CHANGE,
+        LOGOUT,
+        SHUTDOWN
+    }
+    
+    private final BuilderMode plugin;
+    private final ConfigManager configManager;
+    private final File directory;
+    private final Queue<Entry> queue = new ConcurrentLinkedQueue<>();
+    
+    private ScheduledExecutorService executor;
+    private ScheduledFuture<?> flushTask;
+    // Only touched while flushing
+    private long lastCleanupHour;
+    
+    public SessionLedger(BuilderMode plugin, ConfigManager configManager) {
+        this.plugin = plugin;
+        this.configManager = configManager;
+        this.directory = new File(plugin.getDataFolder(), "ledger");
+    }
+    
+    public void start() {
+        directory.mkdirs();
+        executor = plugin.getPlatformScheduler().newWorker("BuilderMode-ledger");
+        scheduleFlush();
+    }
+    
+    private void scheduleFlush() {
+        if (flushTask != null) {
+            flushTask.cancel(false);
+        }
+        long interval = configManager.getLedgerFlushInterval();
+        flushTask = executor.scheduleWithFixedDelay(this::flush, interval, interval, TimeUnit.MILLISECONDS);
+    }
+    
+    // Picks up a new flush interval after a reload
+    public void rescheduleFlush() {
+        if (executor != null) {
+            scheduleFlush();
+        }
+    }
+    
+    // Writes what is still queued. Called once on disable, after the sessions have ended.
+    public void close() {
+        if (executor == null) {
+            return;
+        }
+        
+        executor.shutdown();
+        try {
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        executor = null;
+        
+        flush();
+    }
+    
+    // Called by whoever ended the session, the activation is the one that just ended
+    public void record(PlayerSession session, PlayerSession.Activation ended, EndReason reason) {
+        Player player = ended.getPlayer();
+        World world = ended.getWorld();
+        if (executor == null || player == null || world == null || !configManager.isLedgerEnabled()) {
+            return;
+        }
+        
+        long now = System.currentTimeMillis();
+        queue.add(new Entry(now, session.getUniqueId(), player.getName(), world.getName(), session.getGrantedDistance(),
+            now - ended.getStartTime(), reason, session.getChunkSeconds(now)));
+    }
+    
+    // Adds up the records of the last hours, after writing what is queued
+    public CompletableFuture<Summary> aggregate(int hours) {
+        ScheduledExecutorService current = executor;
+        if (current == null) {
+            return CompletableFuture.failedFuture(new IllegalStateException("The session ledger is not running"));
+        }
+        
+        return CompletableFuture.supplyAsync(() -> {
+            flush();
+            return read(System.currentTimeMillis() - hours * HOUR);
+        }, current);
+    }
+    
+    private synchronized void flush() {
+        long now = System.currentTimeMillis();
+        if (now / HOUR != lastCleanupHour) {
+            lastCleanupHour = now / HOUR;
+            deleteExpired(now);
+        }
+        
+        if (queue.isEmpty()) {
+            return;
+        }
+        
+        Writer out = null;
+        long outHour = -1L;
+        try {
+            Entry entry;
+            while ((entry = queue.poll()) != null) {
+                long hour = entry.endTime / HOUR;
+                if (hour != outHour) {
+                    if (out != null) {
+                        out.close();
+                    }
+                    out = open(hour);
+                    outHour = hour;
+                }
+                entry.write(out);
+            }
+        } catch (IOException e) {
+            plugin.getLogger().log(Level.WARNING, "Failed to write the session ledger", e);
+        } finally {
+            if (out != null) {
+                try {
+                    out.close();
+                } catch (IOException e) {
+                    plugin.getLogger().log(Level.WARNING, "Failed to close the session ledger", e);
+                }
+            }
+        }
+    }
+    
+    private Writer open(long hour) throws IOException {
+        File file = new File(directory, "ledger-" + hour + SUFFIX);
+        return new BufferedWriter(new OutputStreamWriter(new GZIPOutputStream(new FileOutputStream(file, true)), StandardCharsets.UTF_8));
+    }
+    
+    private void deleteExpired(long now) {
+        File[] files = directory.listFiles((dir, name) -> name.endsWith(SUFFIX));
+        if (files == null) {
+            return;
+        }
+        
+        long cutoff = now - configManager.getLedgerRetention();
+        for (File file : files) {
+            if (file.lastModified() < cutoff && !file.delete()) {
+                plugin.getLogger().warning("Failed to delete " + file.getName());
+            }
+        }
+    }
+    
+    // Files are named by the hour since the epoch, an hour's file may still get records late
+    private Summary read(long since) {
+        Summary summary = new Summary();
+        File[] files = directory.listFiles((dir, name) -> name.endsWith(SUFFIX));
+        if (files == null) {
+            return summary;
+        }
+        
+        for (File file : files) {
+            if (file.lastModified() < since) {
+                continue;
+            }
+            
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(new GZIPInputStream(new FileInputStream(file)), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    Entry entry = Entry.parse(line);
+                    if (entry != null && entry.endTime >= since) {
+                        summary.add(entry);
+                    }
+                }
+            } catch (EOFException e) {
+                // The last member was cut off by a crash, everything before it still counts
+            } catch (IOException e) {
+                plugin.getLogger().log(Level.WARNING, "Failed to read " + file.getName(), e);
+            }
+        }
+        return summary;
+    }
+    
+    public static final class Summary {
+        
+        private final Totals total = new Totals(null);
+        private final Map<EndReason, Integer> ended = new EnumMap<>(EndReason.class);
+        private final Map<String, Totals> worlds = new HashMap<>();
+        private final Map<UUID, Totals> players = new HashMap<>();
+        
+        private void add(Entry entry) {
+            total.add(entry);
+            ended.merge(entry.reason, 1, Integer::sum);
+            worlds.computeIfAbsent(entry.world, Totals::new).add(entry);
+            players.computeIfAbsent(entry.uuid, (uuid) -> new Totals(entry.name)).add(entry);
+        }
+        
+        public Totals getTotal() {
+            return total;
+        }
+        
+        public int getEnded(EndReason reason) {
+            return ended.getOrDefault(reason, 0);
+        }
+        
+        // Most chunk-seconds first
+        public List<Totals> getWorlds() {
+            return sorted(worlds, worlds.size());
+        }
+        
+        public List<Totals> getTopPlayers(int limit) {
+            return sorted(players, limit);
+        }
+        
+        private static List<Totals> sorted(Map<?, Totals> totals, int limit) {
+            List<Totals> list = new ArrayList<>(totals.values());
+            list.sort(Comparator.comparingLong(Totals::getChunkSeconds).reversed());
+            return list.size() > limit ? list.subList(0, limit) : list;
+        }
+    }
+    
+    public static final class Totals {
+        
+        private final String name;
+        private int sessions;
+        private long durationMillis;
+        private long chunkSeconds;
+        
+        private Totals(String name) {
+            this.name = name;
+        }
+        
+        private void add(Entry entry) {
+            sessions++;
+            durationMillis += entry.durationMillis;
+            chunkSeconds += entry.chunkSeconds;
+        }
+        
+        // The world or player name
+        public String getName() {
+            return name;
+        }
+        
+        public int getSessions() {
+            return sessions;
+        }
+        
+        public long getDurationMillis() {
+            return durationMillis;
+        }
+        
+        public long getChunkSeconds() {
+            return chunkSeconds;
+        }
+    }
+    
+    private static final class Entry {
+        
+        private final long endTime;
+        private final UUID uuid;
+        private final String name;
+        private final String world;
+        private final int distance;
+        private final long durationMillis;
+        private final EndReason reason;
+        private final long chunkSeconds;
+        
+        private Entry(long endTime, UUID uuid, String name, String world, int distance, long durationMillis, EndReason reason, long chunkSeconds) {
+            this.endTime = endTime;
+            this.uuid = uuid;
+            this.name = name;
+            this.world = world;
+            this.distance = distance;
+            this.durationMillis = durationMillis;
+            this.reason = reason;
+            this.chunkSeconds = chunkSeconds;
+        }
+        
+        // Tab separated, neither player nor world names can hold a tab
+        private void write(Writer out) throws IOException {
+            out.write(endTime + "\t" + uuid + "\t" + name + "\t" + world + "\t" + distance + "\t"
+                + durationMillis + "\t" + reason.name() + "\t" + chunkSeconds + "\n");
+        }
+        
+        // Null for a line that can't be read, e.g. one cut off by a crash
+        private static Entry parse(String line) {
+            String[] fields = line.split("\t");
+            if (fields.length != 8) {
+                return null;
+            }
+            
+            try {
+                return new Entry(Long.parseLong(fields[0]), UUID.fromString(fields[1]), fields[2], fields[3], Integer.parseInt(fields[4]),
+                    Long.parseLong(fields[5]), EndReason.valueOf(fields[6]), Long.parseLong(fields[7]));
+            } catch (IllegalArgumentException e) {
+                return null;
+            }
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.yourname.buildermode;
+
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerChangedWorldEvent;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.event.player.PlayerRespawnEvent;
+import org.bukkit.event.player.PlayerTeleportEvent;
+
+// Events that start, end or move sessions. Unlike the restrictions these stay registered,
+// a player can resume a session on join or change worlds while nothing is active yet.
+public class SessionListener implements Listener {
+    
+    private final BuilderMode plugin;
+    
+    public SessionListener(BuilderMode plugin) {
+        this.plugin = plugin;
+    }
+    
+    @EventHandler(priority = EventPriority.HIGHEST)
+    public void onPlayerTeleport(PlayerTeleportEvent event) {
+        Player player = event.getPlayer();
+        
+        // Check if teleporting to a different world
+        if (event.getFrom().getWorld() != null && event.getTo() != null && event.getTo().getWorld() != null) {
+            if (!event.getFrom().getWorld().equals(event.getTo().getWorld())) {
+                // Disable BuilderMode if active when changing dimensions
+                boolean active = plugin.getRenderDistanceManager().isActive(player);
+                if (active) {
+                    plugin.getRenderDistanceManager().disableOnDimensionChange(player);
+                }
+                
+                plugin.getEventLog().record(EventCategory.TELEPORT, player, event.getFrom().getWorld(), event.getTo().getWorld(), active ? 1 : 0);
+            }
+        }
+    }
+    
+    @EventHandler(priority = EventPriority.HIGHEST)
+    public void onPlayerChangedWorld(PlayerChangedWorldEvent event) {
+        Player player = event.getPlayer();
+        
+        // Disable BuilderMode if active when changing dimensions
+        boolean active = plugin.getRenderDistanceManager().isActive(player);
+        if (active) {
+            plugin.getRenderDistanceManager().disableOnDimensionChange(player);
+        }
+        
+        plugin.getEventLog().record(EventCategory.WORLD_CHANGE, player, event.getFrom(), player.getWorld(), active ? 1 : 0);
+    }
+    
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerJoin(PlayerJoinEvent event) {
+        // Pick up a session that was interrupted by a restart, and a cooldown from another server
+        RenderDistanceManager renderDistanceManager = plugin.getRenderDistanceManager();
+        renderDistanceManager.loadCooldown(event.getPlayer().getUniqueId());
+        renderDistanceManager.resume(event.getPlayer());
+    }
+    
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerRespawn(PlayerRespawnEvent event) {
+        Player player = event.getPlayer();
+        
+        // Leaving the End through the exit portal respawns the player in another dimension
+        if (plugin.getRenderDistanceManager().isActive(player)) {
+            plugin.getRenderDistanceManager().reconcileDimension(player);
+        }
+    }
+    
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerQuit(PlayerQuitEvent event) {
+        Player player = event.getPlayer();
+        
+        // Disable BuilderMode and start cooldown when player logs out
+        if (plugin.getEventLog().isEnabled(EventCategory.LOGOUT) && plugin.getRenderDistanceManager().isActive(player)) {
+            plugin.getEventLog().record(EventCategory.LOGOUT, player);
+        }
+        plugin.getRenderDistanceManager().disableOnLogout(player);
+    }
+}
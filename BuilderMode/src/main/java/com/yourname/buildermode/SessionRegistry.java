@@ -0,0 +1,104 @@
+package com.yourname.buildermode;
+
+import org.bukkit.entity.Player;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+public class SessionRegistry {
+    
+    // ConcurrentHashMap locks per bin, so players on different region threads never contend
+    private final ConcurrentHashMap<UUID, PlayerSession> sessions =
+        new ConcurrentHashMap<>(64, 0.75f, Runtime.getRuntime().availableProcessors());
+    // Active sessions keyed by the Player object itself, so hot paths never resolve a UUID
+    private final ConcurrentHashMap<Player, PlayerSession> active = new ConcurrentHashMap<>();
+    private final List<ActivityListener> activityListeners = new CopyOnWriteArrayList<>();
+    // Guarded by activityListeners, whether the listeners were last told there are sessions
+    private boolean anyActive;
+    
+    public PlayerSession get(UUID uuid) {
+        return sessions.get(uuid);
+    }
+    
+    public PlayerSession getOrCreate(UUID uuid) {
+        return sessions.computeIfAbsent(uuid, PlayerSession::new);
+    }
+    
+    // Drops a session that is no longer active, keeping it if it was reactivated meanwhile
+    public void removeIfIdle(UUID uuid) {
+        sessions.computeIfPresent(uuid, (key, session) -> session.isActive() ? session : null);
+    }
+    
+    public boolean isActive(UUID uuid) {
+        PlayerSession session = sessions.get(uuid);
+        return session != null && session.isActive();
+    }
+    
+    public boolean isActive(Player player) {
+        PlayerSession session = active.get(player);
+        return session != null && session.isActive();
+    }
+    
+    public PlayerSession getActive(Player player) {
+        return active.get(player);
+    }
+    
+    public void track(Player player, PlayerSession session) {
+        if (active.put(player, session) == null) {
+            updateActivity();
+        }
+    }
+    
+    public void untrack(Player player) {
+        if (active.remove(player) != null) {
+            updateActivity();
+        }
+    }
+    
+    public void addActivityListener(ActivityListener listener) {
+        activityListeners.add(listener);
+    }
+    
+    // Every change to the active map ends up here, so the last caller always sees the
+    // final state even when sessions start and end on several region threads at once
+    private void updateActivity() {
+        synchronized (activityListeners) {
+            boolean nowActive = !active.isEmpty();
+            if (nowActive == anyActive) {
+                return;
+            }
+            anyActive = nowActive;
+            
+            for (ActivityListener listener : activityListeners) {
+                if (nowActive) {
+                    listener.onFirstStarted();
+                } else {
+                    listener.onLastEnded();
+                }
+            }
+        }
+    }
+    
+    public Collection<PlayerSession> values() {
+        return sessions.values();
+    }
+    
+    public Collection<PlayerSession> active() {
+        return active.values();
+    }
+    
+    public int activeCount() {
+        return active.size();
+    }
+    
+    // Told when the first session starts and when the last one ends
+    public interface ActivityListener {
+        
+        void onFirstStarted();
+        
+        void onLastEnded();
+    }
+}
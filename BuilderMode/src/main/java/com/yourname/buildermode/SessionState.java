@@ -0,0 +1,12 @@
+package com.yourname.buildermode;
+
+public enum SessionState {
+    // Never activated since the player joined
+    INACTIVE,
+    // BuilderMode is currently applied
+    ACTIVE,
+    // Ended by running out or being turned off, cooldown counts from activation
+    EXPIRED,
+    // Ended early by a dimension change or logout, cooldown restarted
+    COOLDOWN
+}
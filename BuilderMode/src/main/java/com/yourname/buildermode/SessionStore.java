@@ -0,0 +1,97 @@
+package com.yourname.buildermode;
+
+import org.bukkit.World;
+
+import java.util.Map;
+import java.util.UUID;
+
+// Keeps cooldowns and interrupted sessions so they survive a restart. The local journal is
+// the default, a database lets several servers share cooldowns. Records are queued and
+// written in the background, nothing here blocks a tick thread once the store is open.
+public interface SessionStore extends CooldownStore {
+    
+    // Loads what was stored before. Called once on enable.
+    void open();
+    
+    // Writes everything still queued. Called once on disable.
+    void close();
+    
+    // Whether sessions are kept across a restart, otherwise they are ended on shutdown
+    boolean isEnabled();
+    
+    // Picks up a new flush interval after a reload
+    void rescheduleFlush();
+    
+    // Sessions to resume when their player comes back
+    Map<UUID, StoredSession> getSessions();
+    
+    void recordSession(UUID uuid, DistanceMode mode, int originalDistance, World world, long expirationTime);
+    
+    void recordPause(UUID uuid, long remaining);
+    
+    void recordEnd(UUID uuid);
+    
+    final class StoredSession {
+        
+        private final DistanceMode mode;
+        private final int originalDistance;
+        private final World.Environment dimension;
+        private final UUID world;
+        private final long expirationTime;
+        private final long remaining;
+        private final long pausedAt;
+        
+        StoredSession(DistanceMode mode, int originalDistance, World.Environment dimension, UUID world, long expirationTime, long remaining, long pausedAt) {
+            this.mode = mode;
+            this.originalDistance = originalDistance;
+            this.dimension = dimension;
+            this.world = world;
+            this.expirationTime = expirationTime;
+            this.remaining = remaining;
+            this.pausedAt = pausedAt;
+        }
+        
+        public DistanceMode getMode() {
+            return mode;
+        }
+        
+        public int getOriginalDistance() {
+            return originalDistance;
+        }
+        
+        public World.Environment getDimension() {
+            return dimension;
+        }
+        
+        public UUID getWorld() {
+            return world;
+        }
+        
+        // Whether this is the world the session was started in
+        public boolean isIn(World current) {
+            return world.equals(current.getUID());
+        }
+        
+        public boolean isPaused() {
+            return remaining >= 0;
+        }
+        
+        // Paused sessions keep the time they had at shutdown, others kept running while the server was down
+        public long getRemaining(long now) {
+            return isPaused() ? remaining : expirationTime - now;
+        }
+        
+        public long getPausedAt() {
+            return pausedAt;
+        }
+        
+        long getExpirationTime() {
+            return expirationTime;
+        }
+        
+        // -1 unless the session was paused
+        long getRemainingAtPause() {
+            return remaining;
+        }
+    }
+}
@@ -0,0 +1,236 @@
+package com.yourname.buildermode;
+
+import org.bukkit.World;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+// Runs the store against real SQLite and H2 files in a temp folder, with the plugin and its
+// config mocked. Long flush intervals keep writes queued until close unless a test says otherwise.
+class JdbcStoreTest {
+    
+    private static final long NEVER = TimeUnit.HOURS.toMillis(1);
+    
+    @TempDir
+    Path folder;
+    
+    private BuilderMode plugin;
+    private final List<JdbcStore> stores = new ArrayList<>();
+    
+    @BeforeEach
+    void setUp() {
+        PlatformScheduler scheduler = mock(PlatformScheduler.class);
+        when(scheduler.newWorker(anyString())).thenAnswer((invocation) -> Executors.newSingleThreadScheduledExecutor());
+        
+        plugin = mock(BuilderMode.class);
+        when(plugin.getDataFolder()).thenReturn(folder.toFile());
+        when(plugin.getLogger()).thenReturn(Logger.getLogger("BuilderMode-test"));
+        when(plugin.getPlatformScheduler()).thenReturn(scheduler);
+    }
+    
+    @AfterEach
+    void tearDown() {
+        for (JdbcStore store : stores) {
+            store.close();
+        }
+    }
+    
+    @ParameterizedTest
+    @ValueSource(strings = {"sqlite", "h2"})
+    void newestCooldownWins(String database) throws Exception {
+        String url = url(database, "shared");
+        UUID player = UUID.randomUUID();
+        
+        JdbcStore newer = open(config(url, "lobby", NEVER, 0L));
+        JdbcStore older = open(config(url, "survival", NEVER, 0L));
+        newer.recordCooldown(player, 2_000L);
+        older.recordCooldown(player, 1_000L);
+        
+        // The server with the older time flushes last and must not shorten the cooldown
+        newer.close();
+        older.close();
+        assertEquals(2_000L, loadCooldown(open(config(url, "lobby", NEVER, 0L)), player));
+        
+        JdbcStore later = open(config(url, "survival", NEVER, 0L));
+        later.recordCooldown(player, 3_000L);
+        later.close();
+        assertEquals(3_000L, loadCooldown(open(config(url, "lobby", NEVER, 0L)), player));
+    }
+    
+    @Test
+    void cachedCooldownIsKeptForTheTtl() throws Exception {
+        String url = url("sqlite", "cache");
+        UUID player = UUID.randomUUID();
+        
+        ConfigManager readerConfig = config(url, "lobby", NEVER, 60_000L);
+        JdbcStore reader = open(readerConfig);
+        assertEquals(0L, loadCooldown(reader, player));
+        
+        JdbcStore writer = open(config(url, "survival", NEVER, 0L));
+        writer.recordCooldown(player, 5_000L);
+        writer.close();
+        
+        // Still inside the TTL, so the database isn't asked again
+        assertEquals(0L, loadCooldown(reader, player));
+        
+        when(readerConfig.getStorageCacheTtl()).thenReturn(0L);
+        assertEquals(5_000L, loadCooldown(reader, player));
+    }
+    
+    @ParameterizedTest
+    @ValueSource(strings = {"sqlite", "h2"})
+    void writesAreBatchedUntilTheFlush(String database) throws Exception {
+        String url = url(database, "batched");
+        UUID player = UUID.randomUUID();
+        UUID leaving = UUID.randomUUID();
+        World world = world(World.Environment.NETHER);
+        
+        JdbcStore store = open(config(url, "lobby", NEVER, 0L));
+        store.recordCooldown(player, 1_000L);
+        store.recordCooldown(player, 3_000L);
+        store.recordCooldown(player, 2_000L);
+        store.recordSession(player, DistanceMode.VIEW, 8, world, 90_000L);
+        store.recordPause(player, 45_000L);
+        store.recordSession(leaving, DistanceMode.SEND, 10, world, 60_000L);
+        store.recordEnd(leaving);
+        
+        assertEquals(0, count(url, "buildermode_cooldowns"));
+        assertEquals(0, count(url, "buildermode_sessions"));
+        
+        // One row per player with the latest state
+        store.close();
+        assertEquals(1, count(url, "buildermode_cooldowns"));
+        assertEquals(1, count(url, "buildermode_sessions"));
+        
+        JdbcStore reopened = open(config(url, "lobby", NEVER, 0L));
+        assertEquals(3_000L, loadCooldown(reopened, player));
+        Map<UUID, SessionStore.StoredSession> sessions = reopened.getSessions();
+        assertEquals(1, sessions.size());
+        SessionStore.StoredSession session = sessions.get(player);
+        assertNotNull(session);
+        assertEquals(DistanceMode.VIEW, session.getMode());
+        assertEquals(8, session.getOriginalDistance());
+        assertEquals(World.Environment.NETHER, session.getDimension());
+        assertTrue(session.isIn(world));
+        assertTrue(session.isPaused());
+        assertEquals(45_000L, session.getRemaining(System.currentTimeMillis()));
+        
+        // Sessions are per server
+        assertTrue(open(config(url, "survival", NEVER, 0L)).getSessions().isEmpty());
+    }
+    
+    @Test
+    void missingDatabaseKeepsWritesUntilItIsBack() throws Exception {
+        Path missing = folder.resolve("missing");
+        String url = "jdbc:sqlite:" + missing.resolve("buildermode.db");
+        UUID player = UUID.randomUUID();
+        
+        // Neither open nor the lookups may throw, the store keeps running without the database
+        JdbcStore store = open(config(url, "lobby", NEVER, 0L));
+        assertTrue(store.isEnabled());
+        assertTrue(store.getSessions().isEmpty());
+        assertEquals(0L, loadCooldown(store, player));
+        
+        store.recordCooldown(player, 7_000L);
+        store.recordSession(player, DistanceMode.VIEW, 6, world(World.Environment.NORMAL), 30_000L);
+        assertEquals(7_000L, loadCooldown(store, player));
+        
+        Files.createDirectories(missing);
+        store.close();
+        
+        JdbcStore reopened = open(config(url, "lobby", NEVER, 0L));
+        assertEquals(7_000L, loadCooldown(reopened, player));
+        assertEquals(1, reopened.getSessions().size());
+    }
+    
+    @Test
+    void failedFlushIsRetried() throws Exception {
+        Path missing = folder.resolve("later");
+        String url = "jdbc:sqlite:" + missing.resolve("buildermode.db");
+        UUID player = UUID.randomUUID();
+        
+        JdbcStore store = open(config(url, "lobby", 20L, 0L));
+        store.recordCooldown(player, 4_000L);
+        Thread.sleep(100L);
+        
+        // Every flush so far failed, the next one after the folder exists writes the row
+        Files.createDirectories(missing);
+        long deadline = System.currentTimeMillis() + 5_000L;
+        while (count(url, "buildermode_cooldowns") == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20L);
+        }
+        assertEquals(1, count(url, "buildermode_cooldowns"));
+    }
+    
+    private JdbcStore open(ConfigManager config) {
+        JdbcStore store = new JdbcStore(plugin, config);
+        stores.add(store);
+        store.open();
+        return store;
+    }
+    
+    private ConfigManager config(String url, String serverId, long flushInterval, long cacheTtl) {
+        ConfigManager config = mock(ConfigManager.class);
+        when(config.getStorageUrl()).thenReturn(url);
+        when(config.getStorageServerId()).thenReturn(serverId);
+        when(config.getStorageUsername()).thenReturn("");
+        when(config.getStorageFlushInterval()).thenReturn(flushInterval);
+        when(config.getStorageCacheTtl()).thenReturn(cacheTtl);
+        return config;
+    }
+    
+    private String url(String database, String name) {
+        Path file = folder.resolve(name);
+        return database.equals("h2") ? "jdbc:h2:file:" + file : "jdbc:sqlite:" + file + ".db";
+    }
+    
+    private static World world(World.Environment environment) {
+        World world = mock(World.class);
+        when(world.getUID()).thenReturn(UUID.randomUUID());
+        when(world.getEnvironment()).thenReturn(environment);
+        return world;
+    }
+    
+    private static long loadCooldown(JdbcStore store, UUID player) throws Exception {
+        return store.loadCooldown(player).get(5, TimeUnit.SECONDS);
+    }
+    
+    // Returns 0 while the table doesn't exist yet
+    private static int count(String url, String table) throws SQLException {
+        try (Connection connection = DriverManager.getConnection(url);
+             Statement statement = connection.createStatement();
+             ResultSet result = statement.executeQuery("SELECT COUNT(*) FROM " + table)) {
+            return result.next() ? result.getInt(1) : 0;
+        } catch (SQLException e) {
+            if (e.getMessage() != null && (e.getMessage().contains("no such table") || e.getMessage().contains("not found"))) {
+                return 0;
+            }
+            throw e;
+        }
+    }
+}